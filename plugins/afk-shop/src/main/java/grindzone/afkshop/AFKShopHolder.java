@@ -2,11 +2,92 @@ package grindzone.afkshop;
 
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemStack;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.UUID;
+
+/**
+ * Меню магазина; помнит каталог, из которого открыто, — reload не сдвигает слоты под открытым меню.
+ * Переход по страницам и категориям меняет содержимое этого же инвентаря, новый не создаётся.
+ * Товары, на которые не хватает монет по кэшу баланса зрителя, показаны отдельной иконкой.
+ */
 public class AFKShopHolder implements InventoryHolder {
+
+    private final ShopCatalog catalog;
+    private final BalanceCache balances;
+    private final UUID viewer;
+    private Inventory inventory;
+    private int category;
+    private int page;
+    /** Общий массив каталога, показанный сейчас: тот же массив — то же содержимое */
+    private ItemStack[] shown;
+
+    AFKShopHolder(ShopCatalog catalog, BalanceCache balances, UUID viewer) {
+        this.catalog = catalog;
+        this.balances = balances;
+        this.viewer = viewer;
+    }
+
+    public ShopCatalog getCatalog() {
+        return catalog;
+    }
+
+    public int getCategory() {
+        return category;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    void setInventory(Inventory inventory) {
+        this.inventory = inventory;
+    }
+
+    /** Показать страницу; номера вне диапазона приводятся к ближайшим допустимым */
+    public void show(int category, int page) {
+        this.category = Math.max(0, Math.min(category, catalog.getCategories().size() - 1));
+        this.page = Math.max(0, Math.min(page, catalog.pageCount(this.category) - 1));
+        shown = null;
+        refresh();
+    }
+
+    /** Баланс зрителя изменился — перерисовать, только если сменился набор доступных товаров */
+    public void refresh() {
+        double balance = balances.cached(viewer);
+        ItemStack[] contents = Double.isNaN(balance)
+            ? catalog.page(category, page) : catalog.page(category, page, balance);
+        if (contents == shown) return;
+        shown = contents;
+        inventory.setContents(contents);
+    }
+
+    /** Клик по нижнему ряду: листание и вкладки. true — клик обработан как навигация */
+    public boolean navigate(int slot) {
+        if (slot == ShopCatalog.SLOT_PREV) {
+            if (page > 0) show(category, page - 1);
+            return true;
+        }
+        if (slot == ShopCatalog.SLOT_NEXT) {
+            if (page + 1 < catalog.pageCount(category)) show(category, page + 1);
+            return true;
+        }
+        int tab = slot - ShopCatalog.FIRST_TAB;
+        if (tab >= 0 && tab < ShopCatalog.MAX_TABS) {
+            if (tab < catalog.getCategories().size() && tab != category) show(tab, 0);
+            return true;
+        }
+        return false;
+    }
+
+    /** Товар под слотом на текущей странице или null */
+    public ShopOffer offer(int slot) {
+        return catalog.offer(category, page, slot);
+    }
+
     @Override
     public @NotNull Inventory getInventory() {
-        return null;
+        return inventory;
     }
 }
@@ -1,39 +1,62 @@
 package grindzone.afkshop;
 
+import grindzone.common.Metrics;
 import org.bukkit.Bukkit;
-import org.bukkit.Material;
+import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
-import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.ItemMeta;
-import org.bukkit.inventory.meta.PotionMeta;
 import org.bukkit.plugin.java.JavaPlugin;
-import org.bukkit.potion.PotionType;
-import su.nightexpress.coinsengine.api.CoinsEngineAPI;
-import su.nightexpress.coinsengine.api.currency.Currency;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 public class AFKShopPlugin extends JavaPlugin {
 
     private static final String CURRENCY_ID = "afk";
-    private Currency currency;
+    private Wallet wallet;
+    private volatile ShopCatalog catalog;
+    private final PurchaseService purchases = new PurchaseService();
+    private PurchaseLedger ledger;
+    private final Metrics metrics = new Metrics("afkshop");
+    private final Metrics.Histogram purchaseTime = metrics.histogram("purchase", "Покупка по клику (onPurchaseClick)");
+    private final Metrics.Counter purchaseCount = metrics.counter("purchases", "Успешные покупки");
+    private final Metrics.Counter itemsSold = metrics.counter("items_sold", "Выданные предметы");
+    private volatile Path metricsFile;
 
     @Override
     public void onEnable() {
-        if (!Bukkit.getPluginManager().isPluginEnabled("CoinsEngine")) {
-            getLogger().warning("CoinsEngine не найден! Магазин AFK отключён.");
-            return;
-        }
-        currency = CoinsEngineAPI.getCurrency(CURRENCY_ID);
-        if (currency == null) {
-            getLogger().warning("Валюта 'afk' не найдена в CoinsEngine!");
-            return;
+        wallet = createWallet();
+        if (wallet == null) return;
+        saveDefaultConfig();
+        loadSettings();
+        if (getConfig().getBoolean("ledger.enabled", true)) {
+            ledger = new PurchaseLedger(getDataFolder().toPath().resolve("purchases.csv"), getLogger(),
+                getConfig().getInt("ledger.queue-size", 4096), getConfig().getInt("ledger.fsync-seconds", 5));
+            purchases.setLedger(ledger);
+            Bukkit.getAsyncScheduler().runAtFixedRate(this, task -> ledger.flush(false), 1L, 1L, TimeUnit.SECONDS);
         }
+        long metricsSeconds = Math.max(1, getConfig().getInt("metrics.write-seconds", 15));
+        Bukkit.getAsyncScheduler().runAtFixedRate(this, task -> writeMetrics(), metricsSeconds, metricsSeconds, TimeUnit.SECONDS);
         getServer().getPluginManager().registerEvents(new ShopListener(this), this);
         Bukkit.getPluginCommand("afkshop").setExecutor((sender, cmd, label, args) -> {
+            if (args.length == 1 && args[0].equalsIgnoreCase("reload") && sender.hasPermission("afkshop.admin")) {
+                reloadConfig();
+                loadSettings();
+                sender.sendMessage("§aAFKShop перезагружен, товаров: " + catalog.getOfferCount());
+                return true;
+            }
+            if (args.length >= 1 && args[0].equalsIgnoreCase("top") && sender.hasPermission("afkshop.admin")) {
+                sendTop(sender, args);
+                return true;
+            }
+            if (args.length == 1 && args[0].equalsIgnoreCase("metrics") && sender.hasPermission("afkshop.admin")) {
+                sender.sendMessage("§6AFKShop — метрики:");
+                metrics.summary().forEach(sender::sendMessage);
+                return true;
+            }
             if (!(sender instanceof Player p)) {
                 sender.sendMessage("§cТолько для игроков!");
                 return true;
@@ -41,90 +64,146 @@ public class AFKShopPlugin extends JavaPlugin {
             openShop(p);
             return true;
         });
-        getLogger().info("AFKShop включён. Команда: /afkshop");
+        getLogger().info("AFKShop включён. Команда: /afkshop, товаров: " + catalog.getOfferCount());
     }
 
-    private void openShop(Player p) {
-        String title = getConfig().getString("title", "§e§lII §6§lAFK SHOP §e§lII");
-        Inventory inv = Bukkit.createInventory(new AFKShopHolder(), 45, net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer.legacySection().deserialize(title));
+    @Override
+    public void onDisable() {
+        Bukkit.getAsyncScheduler().cancelTasks(this);
+        if (ledger != null) ledger.close();
+        writeMetrics();
+    }
 
-        for (String key : getConfig().getConfigurationSection("items").getKeys(false)) {
-            var section = getConfig().getConfigurationSection("items." + key);
-            int slot = section.getInt("slot");
-            Material mat = Material.valueOf(section.getString("material"));
-            int amount = section.getInt("amount", 1);
-            int price = section.getInt("price");
-            String name = section.getString("name");
+    private void loadSettings() {
+        catalog = ShopCatalog.compile(getConfig(), getLogger());
+        purchases.configure(wallet, getConfig().getLong("click-cooldown-ms", 150));
+        String file = getConfig().getString("metrics.file", "metrics.prom");
+        metricsFile = getConfig().getBoolean("metrics.enabled", true) && !file.isEmpty()
+            ? getDataFolder().toPath().resolve(file) : null;
+    }
 
-            ItemStack item = createShopItem(mat, amount, price, name, section);
-            inv.setItem(slot, item);
+    /** Файл в текстовом формате Prometheus для textfile-коллектора node exporter */
+    private void writeMetrics() {
+        Path file = metricsFile;
+        if (file == null) return;
+        try {
+            metrics.writeTo(file);
+        } catch (IOException ex) {
+            getLogger().warning("Не удалось записать метрики в " + file + ": " + ex.getMessage());
         }
-
-        p.openInventory(inv);
     }
 
-    private ItemStack createShopItem(Material mat, int amount, int price, String name, org.bukkit.configuration.ConfigurationSection section) {
-        ItemStack item = new ItemStack(mat, amount);
-
-        if (mat == Material.POTION || mat == Material.SPLASH_POTION || mat == Material.LINGERING_POTION) {
-            PotionMeta meta = (PotionMeta) item.getItemMeta();
-            if (meta != null && section.contains("potion-type")) {
-                meta.setBasePotionType(PotionType.valueOf(section.getString("potion-type")));
-                item.setItemMeta(meta);
-            }
+    /** Баланс игроков — валюта afk в CoinsEngine; null — магазин отключён. Симуляция нагрузки подставляет свой. */
+    Wallet createWallet() {
+        if (!Bukkit.getPluginManager().isPluginEnabled("CoinsEngine")) {
+            getLogger().warning("CoinsEngine не найден! Магазин AFK отключён.");
+            return null;
         }
-
-        ItemMeta meta = item.getItemMeta();
-        if (meta != null) {
-            meta.setDisplayName(name != null ? name.replace("&", "§") : mat.name().replace("_", " "));
-            List<String> lore = new ArrayList<>();
-            lore.add("§7Цена: §b" + price + " AFK-монет");
-            lore.add("");
-            lore.add("§eНажмите, чтобы купить!");
-            meta.setLore(lore);
-            item.setItemMeta(meta);
+        Wallet coins = CoinsEngineWallet.create(CURRENCY_ID);
+        if (coins == null) {
+            getLogger().warning("Валюта 'afk' не найдена в CoinsEngine!");
+            return null;
         }
-        return item;
+        getServer().getPluginManager().registerEvents(new CoinsEngineBalanceListener(this, CURRENCY_ID), this);
+        return coins;
     }
 
-    public void onPurchaseClick(Player p, int slot, ItemStack clicked) {
-        if (clicked == null || clicked.getType().isAir()) return;
-
-        String itemKey = findItemBySlot(slot);
-        if (itemKey == null) return;
+    /**
+     * Баланс игрока изменился (событие CoinsEngine, любой поток): обновить кэш и, если у него
+     * открыт магазин, перерисовать доступность товаров в его потоке.
+     */
+    void onBalanceChange(UUID uuid, double balance) {
+        if (!purchases.balances().refresh(uuid, balance)) return;
+        Player p = Bukkit.getPlayer(uuid);
+        if (p == null) return;
+        p.getScheduler().run(this, task -> {
+            if (p.getOpenInventory().getTopInventory().getHolder(false) instanceof AFKShopHolder holder) holder.refresh();
+        }, null);
+    }
 
-        var section = getConfig().getConfigurationSection("items." + itemKey);
-        if (section == null) return;
+    public void openShop(Player p) {
+        openShop(p, 0, 0);
+    }
 
-        int price = section.getInt("price");
-        double balance = CoinsEngineAPI.getBalance(p, currency);
+    public void openShop(Player p, int category, int page) {
+        ShopCatalog current = catalog;
+        purchases.balances().get(p, wallet);
+        AFKShopHolder holder = new AFKShopHolder(current, purchases.balances(), p.getUniqueId());
+        Inventory inv = Bukkit.createInventory(holder, ShopCatalog.SIZE, current.getTitle());
+        holder.setInventory(inv);
+        holder.show(category, page);
+        p.openInventory(inv);
+    }
 
-        if (balance < price) {
-            p.sendMessage("§cНедостаточно AFK-монет! Нужно: §b" + price + "§c, у вас: §b" + (int) balance);
+    /** /afkshop top [часы] — продажи и покупатели за период; журнал читается асинхронно */
+    private void sendTop(CommandSender sender, String[] args) {
+        if (ledger == null) {
+            sender.sendMessage("§cЖурнал покупок выключен (ledger.enabled).");
             return;
         }
+        int hours;
+        try {
+            hours = args.length > 1 ? Math.max(1, Integer.parseInt(args[1])) : 24;
+        } catch (NumberFormatException ex) {
+            sender.sendMessage("§7Использование: §e/afkshop top [часы]");
+            return;
+        }
+        long since = System.currentTimeMillis() - hours * 3_600_000L;
+        Bukkit.getAsyncScheduler().runNow(this, task -> {
+            PurchaseLedger.Report report;
+            try {
+                report = ledger.query(since, 10);
+            } catch (IOException ex) {
+                getLogger().warning("Не удалось прочитать журнал покупок: " + ex.getMessage());
+                reply(sender, () -> sender.sendMessage("§cНе удалось прочитать журнал покупок."));
+                return;
+            }
+            reply(sender, () -> {
+                sender.sendMessage("§6За " + hours + " ч: §f" + report.purchases() + " покупок§7, §b" + report.coins() + " AFK-монет");
+                sender.sendMessage("§eТоп товаров (предметов):");
+                for (Map.Entry<String, Long> e : report.topItems()) {
+                    sender.sendMessage("§7- §f" + e.getKey() + " §7— §f" + e.getValue());
+                }
+                sender.sendMessage("§eТоп покупателей (AFK-монет):");
+                for (Map.Entry<UUID, Long> e : report.topSpenders()) {
+                    String name = Bukkit.getOfflinePlayer(e.getKey()).getName();
+                    sender.sendMessage("§7- §f" + (name != null ? name : e.getKey()) + " §7— §b" + e.getValue());
+                }
+            });
+        });
+    }
 
-        Material mat = Material.valueOf(section.getString("material"));
-        int amount = section.getInt("amount", 1);
-
-        ItemStack give = new ItemStack(mat, amount);
-        if (mat == Material.POTION && section.contains("potion-type")) {
-            PotionMeta pm = (PotionMeta) give.getItemMeta();
-            if (pm != null) pm.setBasePotionType(PotionType.valueOf(section.getString("potion-type")));
-            give.setItemMeta(pm);
+    /** Ответ команде из асинхронной задачи: игроку — в его потоке, консоли — в глобальном */
+    private void reply(CommandSender sender, Runnable action) {
+        if (sender instanceof Player p) {
+            p.getScheduler().run(this, task -> action.run(), null);
+        } else {
+            Bukkit.getGlobalRegionScheduler().execute(this, action);
         }
+    }
 
-        CoinsEngineAPI.removeBalance(p, currency, price);
-        p.getInventory().addItem(give);
-        p.sendMessage("§aКуплено: §f" + amount + "x " + mat.name().replace("_", " ") + " §7за §b" + price + " AFK-монет");
+    public void onPurchaseClick(Player p, ShopOffer offer) {
+        long start = System.nanoTime();
+        purchase(p, offer, 1);
+        purchaseTime.recordSince(start);
     }
 
-    private String findItemBySlot(int slot) {
-        for (String key : getConfig().getConfigurationSection("items").getKeys(false)) {
-            if (getConfig().getInt("items." + key + ".slot") == slot) return key;
-        }
-        return null;
+    /** Покупка units раз по offer с учётом в метриках; true — товар выдан и оплачен */
+    public boolean purchase(Player p, ShopOffer offer, int units) {
+        if (!purchases.purchase(p, offer, units)) return false;
+        purchaseCount.increment();
+        itemsSold.add((long) offer.amount() * units);
+        return true;
+    }
+
+    /** Shift-клик: меню выбора количества для оптовой покупки */
+    public void openQuantityMenu(Player p, AFKShopHolder from, ShopOffer offer) {
+        p.openInventory(new QuantityMenu(this, offer, from.getCategory(), from.getPage()).getInventory());
     }
 
-    public Currency getCurrency() { return currency; }
+    public PurchaseService getPurchases() { return purchases; }
+
+    Metrics getMetrics() { return metrics; }
+
+    public Wallet getWallet() { return wallet; }
 }
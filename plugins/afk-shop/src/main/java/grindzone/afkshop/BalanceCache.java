@@ -0,0 +1,53 @@
+package grindzone.afkshop;
+
+import org.bukkit.entity.Player;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Баланс игроков для отрисовки магазина и отсева заведомо неоплатных покупок.
+ * Из Wallet читается при первом открытии магазина, дальше обновляется событиями
+ * изменения баланса (CoinsEngine) и собственными списаниями; при выходе игрока забывается.
+ * События могут прийти из любого потока.
+ */
+final class BalanceCache {
+
+    private final Map<UUID, Double> balances = new ConcurrentHashMap<>();
+
+    /** Баланс из кэша; если его нет — прочитать из wallet и запомнить */
+    double get(Player p, Wallet wallet) {
+        return balances.computeIfAbsent(p.getUniqueId(), uuid -> wallet.balance(p));
+    }
+
+    /** Прочитать актуальный баланс из wallet и запомнить (явный запрос игрока, не клик) */
+    double load(Player p, Wallet wallet) {
+        double balance = wallet.balance(p);
+        balances.put(p.getUniqueId(), balance);
+        return balance;
+    }
+
+    /** Баланс из кэша или NaN, если игрок ещё не открывал магазин */
+    double cached(UUID uuid) {
+        Double balance = balances.get(uuid);
+        return balance == null ? Double.NaN : balance;
+    }
+
+    void update(UUID uuid, double balance) {
+        balances.put(uuid, balance);
+    }
+
+    /** Обновить, только если игрок уже в кэше: события по остальным не нужны */
+    boolean refresh(UUID uuid, double balance) {
+        return balances.replace(uuid, balance) != null;
+    }
+
+    void forget(UUID uuid) {
+        balances.remove(uuid);
+    }
+
+    int size() {
+        return balances.size();
+    }
+}
@@ -0,0 +1,28 @@
+package grindzone.afkshop;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import su.nightexpress.coinsengine.api.event.ChangeBalanceEvent;
+
+/**
+ * Изменения баланса в CoinsEngine (награды AFK-зоны, команды, другие плагины) — в кэш
+ * магазина, чтобы не опрашивать баланс при каждом открытии и клике.
+ * Регистрируется только когда CoinsEngine включён.
+ */
+final class CoinsEngineBalanceListener implements Listener {
+
+    private final AFKShopPlugin plugin;
+    private final String currencyId;
+
+    CoinsEngineBalanceListener(AFKShopPlugin plugin, String currencyId) {
+        this.plugin = plugin;
+        this.currencyId = currencyId;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBalanceChange(ChangeBalanceEvent e) {
+        if (!currencyId.equals(e.getCurrency().getId())) return;
+        plugin.onBalanceChange(e.getUser().getId(), e.getNewAmount());
+    }
+}
@@ -0,0 +1,34 @@
+package grindzone.afkshop;
+
+import org.bukkit.entity.Player;
+import su.nightexpress.coinsengine.api.CoinsEngineAPI;
+import su.nightexpress.coinsengine.api.currency.Currency;
+
+/**
+ * Баланс в валюте CoinsEngine. Меняется в кэше CoinsEngine, на диск его сохраняет сам
+ * CoinsEngine асинхронно. Класс загружается только когда CoinsEngine включён.
+ */
+final class CoinsEngineWallet implements Wallet {
+
+    private final Currency currency;
+
+    private CoinsEngineWallet(Currency currency) {
+        this.currency = currency;
+    }
+
+    /** null, если валюты нет в CoinsEngine */
+    static CoinsEngineWallet create(String currencyId) {
+        Currency currency = CoinsEngineAPI.getCurrency(currencyId);
+        return currency == null ? null : new CoinsEngineWallet(currency);
+    }
+
+    @Override
+    public double balance(Player p) {
+        return CoinsEngineAPI.getBalance(p, currency);
+    }
+
+    @Override
+    public void withdraw(Player p, double amount) {
+        CoinsEngineAPI.removeBalance(p, currency, amount);
+    }
+}
@@ -0,0 +1,135 @@
+package grindzone.afkshop;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Журнал покупок: CSV только на дозапись (время, UUID, товар, количество, предметов, цена).
+ * record() из потока клика лишь кладёт запись в ограниченную очередь; flush() вызывается
+ * асинхронной задачей и пишет всю очередь одним write, fsync — не чаще fsync-seconds.
+ * Отчёт читает файл построчно, не загружая его целиком.
+ */
+final class PurchaseLedger {
+
+    record Entry(long time, UUID uuid, String offer, int units, int items, long price) {}
+
+    record Report(long purchases, long coins, List<Map.Entry<String, Long>> topItems, List<Map.Entry<UUID, Long>> topSpenders) {}
+
+    private final Path file;
+    private final Logger logger;
+    private final ArrayBlockingQueue<Entry> pending;
+    private final long syncNanos;
+    private final AtomicLong dropped = new AtomicLong();
+    private FileChannel channel;
+    private long lastSync = System.nanoTime();
+    private boolean dirty;
+
+    PurchaseLedger(Path file, Logger logger, int queueSize, int fsyncSeconds) {
+        this.file = file;
+        this.logger = logger;
+        this.pending = new ArrayBlockingQueue<>(Math.max(16, queueSize));
+        this.syncNanos = Math.max(0, fsyncSeconds) * 1_000_000_000L;
+    }
+
+    /** Не блокирует: при переполненной очереди запись теряется и учитывается в счётчике */
+    void record(UUID uuid, String offer, int units, int items, long price) {
+        if (!pending.offer(new Entry(System.currentTimeMillis(), uuid, offer, units, items, price))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /** Записать накопленное; force — принудительный fsync (выключение плагина) */
+    synchronized void flush(boolean force) {
+        try {
+            if (!pending.isEmpty()) {
+                if (channel == null) {
+                    Files.createDirectories(file.getParent());
+                    channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                }
+                StringBuilder sb = new StringBuilder();
+                for (Entry e; (e = pending.poll()) != null; ) {
+                    sb.append(e.time()).append(',').append(e.uuid()).append(',').append(e.offer()).append(',')
+                        .append(e.units()).append(',').append(e.items()).append(',').append(e.price()).append('\n');
+                }
+                ByteBuffer buf = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+                while (buf.hasRemaining()) channel.write(buf);
+                dirty = true;
+            }
+            long now = System.nanoTime();
+            if (dirty && channel != null && (force || now - lastSync >= syncNanos)) {
+                channel.force(false);
+                lastSync = now;
+                dirty = false;
+            }
+        } catch (IOException ex) {
+            logger.warning("Не удалось записать журнал покупок: " + ex.getMessage());
+        }
+        long lost = dropped.getAndSet(0);
+        if (lost > 0) logger.warning("Очередь журнала покупок переполнена, потеряно записей: " + lost);
+    }
+
+    synchronized void close() {
+        flush(true);
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+        channel = null;
+    }
+
+    /** Сводка за период с sinceMillis; вызывать из асинхронного потока */
+    Report query(long sinceMillis, int limit) throws IOException {
+        flush(false);
+        Map<String, Long> items = new HashMap<>();
+        Map<UUID, Long> spenders = new HashMap<>();
+        long purchases = 0;
+        long coins = 0;
+        if (Files.exists(file)) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                for (String line; (line = reader.readLine()) != null; ) {
+                    Entry e = parse(line);
+                    if (e == null || e.time() < sinceMillis) continue;
+                    purchases++;
+                    coins += e.price();
+                    items.merge(e.offer(), (long) e.items(), Long::sum);
+                    spenders.merge(e.uuid(), e.price(), Long::sum);
+                }
+            }
+        }
+        return new Report(purchases, coins, top(items, limit), top(spenders, limit));
+    }
+
+    /** Оборванная или чужая строка пропускается */
+    private static Entry parse(String line) {
+        String[] parts = line.split(",", -1);
+        if (parts.length != 6) return null;
+        try {
+            return new Entry(Long.parseLong(parts[0]), UUID.fromString(parts[1]), parts[2],
+                Integer.parseInt(parts[3]), Integer.parseInt(parts[4]), Long.parseLong(parts[5]));
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    private static <K> List<Map.Entry<K, Long>> top(Map<K, Long> totals, int limit) {
+        List<Map.Entry<K, Long>> list = new ArrayList<>(totals.entrySet());
+        list.sort(Map.Entry.<K, Long>comparingByValue(Comparator.reverseOrder()));
+        return list.size() > limit ? list.subList(0, limit) : list;
+    }
+}
@@ -0,0 +1,115 @@
+package grindzone.afkshop;
+
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Покупка одной транзакцией: место в инвентаре проверяется до списания, проверка баланса
+ * и списание идут подряд в потоке игрока без промежуточных вызовов, поэтому две покупки
+ * одного игрока не пересекаются. Попытки чаще click-cooldown-ms отбрасываются — время
+ * попытки запоминается до проверок, так что спам кликами без монет тоже не доходит до Wallet.
+ * Если по кэшу баланса монет заведомо не хватает, покупка отклоняется без обращения к Wallet.
+ * Покупка идёт в потоке игрока (на Folia — его регион), общие карты потокобезопасны.
+ */
+public class PurchaseService {
+
+    private final Map<UUID, Long> lastPurchase = new ConcurrentHashMap<>();
+    private final BalanceCache balances = new BalanceCache();
+    private volatile Wallet wallet;
+    private volatile long cooldownNanos;
+    private volatile PurchaseLedger ledger;
+
+    public void configure(Wallet wallet, long cooldownMillis) {
+        this.wallet = wallet;
+        this.cooldownNanos = Math.max(0, cooldownMillis) * 1_000_000L;
+    }
+
+    /** Покупка units раз по offer; true — товар выдан и оплачен */
+    public boolean purchase(Player p, ShopOffer offer, int units) {
+        if (units < 1) return false;
+        UUID uuid = p.getUniqueId();
+        long now = System.nanoTime();
+        Long last = lastPurchase.get(uuid);
+        if (last != null && now - last < cooldownNanos) return false;
+        lastPurchase.put(uuid, now);
+        long price = (long) offer.price() * units;
+        double cached = balances.cached(uuid);
+        if (cached < price) { // NaN (баланса нет в кэше) — проверка ниже по Wallet
+            notEnoughCoins(p, price, cached);
+            return false;
+        }
+        ItemStack reward = offer.createReward();
+        int items = offer.amount() * units;
+        if (freeSpace(p.getInventory(), reward) < items) {
+            p.sendMessage("§cНедостаточно места в инвентаре!");
+            return false;
+        }
+        double balance = wallet.balance(p);
+        balances.update(uuid, balance);
+        if (balance < price) {
+            notEnoughCoins(p, price, balance);
+            return false;
+        }
+        wallet.withdraw(p, price);
+        balances.update(uuid, balance - price);
+        give(p, reward, items);
+        if (ledger != null) ledger.record(uuid, offer.key(), units, items, price);
+        p.sendMessage("§aКуплено: §f" + items + "x " + offer.itemName() + " §7за §b" + price + " AFK-монет");
+        return true;
+    }
+
+    private static void notEnoughCoins(Player p, long price, double balance) {
+        p.sendMessage("§cНедостаточно AFK-монет! Нужно: §b" + price + "§c, у вас: §b" + (int) balance);
+    }
+
+    /** Журнал покупок; null — не вести */
+    void setLedger(PurchaseLedger ledger) {
+        this.ledger = ledger;
+    }
+
+    BalanceCache balances() {
+        return balances;
+    }
+
+    public void forget(UUID uuid) {
+        lastPurchase.remove(uuid);
+        balances.forget(uuid);
+    }
+
+    /** Сколько игроков сейчас в карте кулдауна и кэше баланса */
+    int trackedPlayers() {
+        return lastPurchase.size() + balances.size();
+    }
+
+    /** Сколько штук такого предмета поместится в основной инвентарь (без брони и второй руки) */
+    public static int freeSpace(PlayerInventory inv, ItemStack item) {
+        int max = item.getMaxStackSize();
+        int free = 0;
+        for (ItemStack slot : inv.getStorageContents()) {
+            if (slot == null || slot.getType().isAir()) {
+                free += max;
+            } else if (slot.isSimilar(item)) {
+                free += Math.max(0, max - slot.getAmount());
+            }
+        }
+        return free;
+    }
+
+    /** Выдача пачками по размеру стака; место уже проверено, остаток (если вдруг есть) падает под ноги */
+    private static void give(Player p, ItemStack reward, int items) {
+        int max = reward.getMaxStackSize();
+        while (items > 0) {
+            ItemStack stack = reward.clone();
+            stack.setAmount(Math.min(max, items));
+            items -= stack.getAmount();
+            for (ItemStack left : p.getInventory().addItem(stack).values()) {
+                p.getWorld().dropItem(p.getLocation(), left);
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package grindzone.afkshop;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Выбор количества для оптовой покупки (shift-клик по товару).
+ * Вся покупка — одно списание и одна выдача; максимум ограничен балансом и местом в инвентаре.
+ * Если не помещается даже одна покупка, «Максимум» ставит 0 и кнопка покупки недоступна.
+ */
+public class QuantityMenu implements InventoryHolder {
+
+    private static final int SIZE = 27;
+    private static final int SLOT_MINUS_10 = 10;
+    private static final int SLOT_MINUS_1 = 11;
+    private static final int SLOT_OFFER = 13;
+    private static final int SLOT_PLUS_1 = 15;
+    private static final int SLOT_PLUS_10 = 16;
+    private static final int SLOT_BACK = 20;
+    private static final int SLOT_MAX = 22;
+    private static final int SLOT_CONFIRM = 24;
+
+    private final AFKShopPlugin plugin;
+    private final ShopOffer offer;
+    private final Inventory inventory;
+    private final int category;
+    private final int page;
+    private int quantity = 1;
+
+    /** category/page — страница магазина, на которую вернёт кнопка «Назад» */
+    public QuantityMenu(AFKShopPlugin plugin, ShopOffer offer, int category, int page) {
+        this.plugin = plugin;
+        this.offer = offer;
+        this.category = category;
+        this.page = page;
+        this.inventory = Bukkit.createInventory(this, SIZE, Component.text("Количество: " + offer.itemName(), NamedTextColor.DARK_GREEN));
+        inventory.setItem(SLOT_MINUS_10, button(Material.RED_STAINED_GLASS_PANE, "§c-10"));
+        inventory.setItem(SLOT_MINUS_1, button(Material.RED_STAINED_GLASS_PANE, "§c-1"));
+        inventory.setItem(SLOT_PLUS_1, button(Material.LIME_STAINED_GLASS_PANE, "§a+1"));
+        inventory.setItem(SLOT_PLUS_10, button(Material.LIME_STAINED_GLASS_PANE, "§a+10"));
+        inventory.setItem(SLOT_BACK, button(Material.ARROW, "§7Назад"));
+        inventory.setItem(SLOT_MAX, button(Material.HOPPER, "§eМаксимум"));
+        render();
+    }
+
+    @Override
+    public @NotNull Inventory getInventory() {
+        return inventory;
+    }
+
+    public void onClick(Player p, int slot) {
+        switch (slot) {
+            case SLOT_MINUS_10 -> setQuantity(quantity - 10);
+            case SLOT_MINUS_1 -> setQuantity(quantity - 1);
+            case SLOT_PLUS_1 -> setQuantity(quantity + 1);
+            case SLOT_PLUS_10 -> setQuantity(quantity + 10);
+            case SLOT_MAX -> showQuantity(maxUnits(p));
+            case SLOT_BACK -> plugin.openShop(p, category, page);
+            case SLOT_CONFIRM -> {
+                if (quantity > 0 && plugin.purchase(p, offer, quantity)) p.closeInventory();
+            }
+            default -> { }
+        }
+    }
+
+    /** Сколько раз игрок может купить товар: по текущему балансу и по месту в инвентаре; 0 — ни разу */
+    private int maxUnits(Player p) {
+        int bySpace = PurchaseService.freeSpace(p.getInventory(), offer.reward()) / offer.amount();
+        if (offer.price() == 0) return bySpace;
+        double balance = plugin.getPurchases().balances().load(p, plugin.getWallet());
+        int byBalance = (int) Math.min(Integer.MAX_VALUE, (long) balance / offer.price());
+        return Math.min(bySpace, byBalance);
+    }
+
+    private void setQuantity(int value) {
+        showQuantity(Math.max(1, value));
+    }
+
+    private void showQuantity(int value) {
+        if (value == quantity) return;
+        quantity = value;
+        render();
+    }
+
+    private void render() {
+        ItemStack icon = offer.icon().clone();
+        icon.setAmount(Math.max(1, Math.min(quantity, icon.getMaxStackSize())));
+        inventory.setItem(SLOT_OFFER, icon);
+        if (quantity == 0) {
+            inventory.setItem(SLOT_CONFIRM, button(Material.GRAY_STAINED_GLASS_PANE, "§7Не хватает AFK-монет или места"));
+            return;
+        }
+        long total = (long) offer.price() * quantity;
+        ItemStack confirm = button(Material.EMERALD_BLOCK, "§aКупить " + quantity + " шт.");
+        ItemMeta meta = confirm.getItemMeta();
+        if (meta != null) {
+            meta.setLore(List.of("§7Предметов: §f" + (long) offer.amount() * quantity, "§7Итого: §b" + total + " AFK-монет"));
+            confirm.setItemMeta(meta);
+        }
+        inventory.setItem(SLOT_CONFIRM, confirm);
+    }
+
+    private static ItemStack button(Material mat, String name) {
+        ItemStack item = new ItemStack(mat);
+        ItemMeta meta = item.getItemMeta();
+        if (meta != null) {
+            meta.setDisplayName(name);
+            item.setItemMeta(meta);
+        }
+        return item;
+    }
+}
@@ -0,0 +1,252 @@
+package grindzone.afkshop;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.inventory.meta.PotionMeta;
+import org.bukkit.potion.PotionType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Неизменяемый каталог магазина, собирается из config.yml при включении и /afkshop reload.
+ * Меню 45 слотов: 4 ряда товаров, нижний ряд — листание и вкладки категорий.
+ * Страница рендерится при первом просмотре и дальше общая для всех игроков до reload;
+ * поиск товара по слоту — арифметика индекса. Доступность товаров по балансу — тоже общие
+ * варианты страницы: вариант k — доступны товары с k младшими ценами страницы, так что
+ * вариантов не больше числа разных цен, а не по одному на игрока.
+ */
+public final class ShopCatalog {
+
+    public static final int SIZE = 45;
+    public static final int PAGE_SIZE = 36;
+    public static final int SLOT_PREV = 36;
+    public static final int SLOT_NEXT = 44;
+    public static final int FIRST_TAB = 37;
+    public static final int MAX_TABS = 7;
+
+    private final Component title;
+    private final List<ShopCategory> categories;
+    private final int offerCount;
+    /** [категория][страница] — содержимое меню; заполняется лениво под блокировкой page() */
+    private final ItemStack[][][] pages;
+    /** [категория][страница] — разные цены товаров страницы по возрастанию */
+    private final int[][][] prices;
+    /** [категория][страница][k] — страница, где доступны только товары с k младшими ценами; лениво */
+    private final ItemStack[][][][] variants;
+
+    private ShopCatalog(Component title, List<ShopCategory> categories) {
+        this.title = title;
+        this.categories = Collections.unmodifiableList(categories);
+        this.pages = new ItemStack[categories.size()][][];
+        this.prices = new int[categories.size()][][];
+        this.variants = new ItemStack[categories.size()][][][];
+        int count = 0;
+        for (int i = 0; i < categories.size(); i++) {
+            int pageCount = categories.get(i).pages();
+            pages[i] = new ItemStack[pageCount][];
+            prices[i] = new int[pageCount][];
+            variants[i] = new ItemStack[pageCount][][];
+            List<ShopOffer> offers = categories.get(i).offers();
+            for (int page = 0; page < pageCount; page++) {
+                int from = page * PAGE_SIZE;
+                prices[i][page] = offers.subList(from, Math.min(offers.size(), from + PAGE_SIZE)).stream()
+                    .mapToInt(ShopOffer::price).distinct().sorted().toArray();
+            }
+            count += offers.size();
+        }
+        this.offerCount = count;
+    }
+
+    public Component getTitle() {
+        return title;
+    }
+
+    public List<ShopCategory> getCategories() {
+        return categories;
+    }
+
+    public int getOfferCount() {
+        return offerCount;
+    }
+
+    public int pageCount(int category) {
+        return pages[category].length;
+    }
+
+    /** Товар в слоте страницы или null (навигация, пустой слот, инвентарь игрока) */
+    public ShopOffer offer(int category, int page, int slot) {
+        if (slot < 0 || slot >= PAGE_SIZE) return null;
+        List<ShopOffer> offers = categories.get(category).offers();
+        int index = page * PAGE_SIZE + slot;
+        return index < offers.size() ? offers.get(index) : null;
+    }
+
+    /** Содержимое страницы; массив общий для всех — только для setContents, не изменять */
+    public synchronized ItemStack[] page(int category, int page) {
+        ItemStack[] contents = pages[category][page];
+        if (contents == null) {
+            contents = render(category, page);
+            pages[category][page] = contents;
+        }
+        return contents;
+    }
+
+    /**
+     * Страница с отметкой товаров, на которые не хватает balance; массив общий для всех
+     * игроков с тем же набором доступных товаров — только для setContents, не изменять.
+     */
+    public synchronized ItemStack[] page(int category, int page, double balance) {
+        int[] pagePrices = prices[category][page];
+        int affordable = 0;
+        while (affordable < pagePrices.length && pagePrices[affordable] <= balance) affordable++;
+        if (affordable == pagePrices.length) return page(category, page);
+        ItemStack[][] pageVariants = variants[category][page];
+        if (pageVariants == null) {
+            pageVariants = new ItemStack[pagePrices.length][];
+            variants[category][page] = pageVariants;
+        }
+        if (pageVariants[affordable] == null) {
+            ItemStack[] contents = Arrays.copyOf(page(category, page), SIZE);
+            int maxPrice = affordable == 0 ? -1 : pagePrices[affordable - 1];
+            for (int slot = 0; slot < PAGE_SIZE; slot++) {
+                ShopOffer offer = offer(category, page, slot);
+                if (offer != null && offer.price() > maxPrice) contents[slot] = offer.lockedIcon();
+            }
+            pageVariants[affordable] = contents;
+        }
+        return pageVariants[affordable];
+    }
+
+    private ItemStack[] render(int category, int page) {
+        ItemStack[] contents = new ItemStack[SIZE];
+        List<ShopOffer> offers = categories.get(category).offers();
+        int from = page * PAGE_SIZE;
+        for (int i = from; i < Math.min(offers.size(), from + PAGE_SIZE); i++) {
+            contents[i - from] = offers.get(i).icon();
+        }
+        int total = pageCount(category);
+        if (page > 0) contents[SLOT_PREV] = button(Material.ARROW, "§eНазад §7(" + page + "/" + total + ")");
+        if (page + 1 < total) contents[SLOT_NEXT] = button(Material.ARROW, "§eДалее §7(" + (page + 2) + "/" + total + ")");
+        if (categories.size() > 1) {
+            for (int i = 0; i < categories.size(); i++) {
+                ShopCategory c = categories.get(i);
+                contents[FIRST_TAB + i] = i == category ? c.activeTab() : c.tab();
+            }
+        }
+        return contents;
+    }
+
+    /**
+     * Товары берутся из секции categories (вкладки по порядку, до 7);
+     * старый плоский формат items читается как одна категория.
+     * Некорректные товары пропускаются с предупреждением, остальной каталог собирается.
+     */
+    public static ShopCatalog compile(ConfigurationSection config, Logger logger) {
+        Component title = LegacyComponentSerializer.legacyAmpersand()
+            .deserialize(config.getString("title", "&e&lII &6&lAFK SHOP &e&lII"));
+        List<ShopCategory> categories = new ArrayList<>();
+        ConfigurationSection section = config.getConfigurationSection("categories");
+        if (section != null) {
+            for (String id : section.getKeys(false)) {
+                ConfigurationSection category = section.getConfigurationSection(id);
+                if (category == null) continue;
+                if (categories.size() == MAX_TABS) {
+                    logger.warning("Категория '" + id + "' пропущена: не больше " + MAX_TABS + " категорий.");
+                    continue;
+                }
+                categories.add(compileCategory(id, category, logger));
+            }
+        } else {
+            categories.add(compileCategory("items", config, logger));
+        }
+        if (categories.isEmpty()) categories.add(new ShopCategory("empty", null, null, List.of()));
+        return new ShopCatalog(title, categories);
+    }
+
+    private static ShopCategory compileCategory(String id, ConfigurationSection section, Logger logger) {
+        List<ShopOffer> offers = new ArrayList<>();
+        ConfigurationSection items = section.getConfigurationSection("items");
+        if (items != null) {
+            boolean legacySlots = false;
+            for (String key : items.getKeys(false)) {
+                ConfigurationSection item = items.getConfigurationSection(key);
+                if (item == null) continue;
+                legacySlots |= item.contains("slot");
+                try {
+                    offers.add(compileOffer(key, item));
+                } catch (IllegalArgumentException ex) {
+                    logger.warning("Товар '" + key + "' пропущен: " + ex.getMessage());
+                }
+            }
+            if (legacySlots) logger.warning("Категория '" + id + "': ключ slot у товаров больше не используется — товары стоят в порядке из config.yml.");
+        }
+        String iconName = section.getString("icon", "CHEST");
+        Material iconMat = Material.matchMaterial(iconName);
+        if (iconMat == null || !iconMat.isItem() || iconMat.isAir()) {
+            logger.warning("Категория '" + id + "': неизвестная иконка " + iconName + ", используется CHEST.");
+            iconMat = Material.CHEST;
+        }
+        String name = section.getString("name", id).replace("&", "§");
+        ItemStack tab = button(iconMat, name);
+        ItemStack activeTab = tab.clone();
+        ItemMeta meta = activeTab.getItemMeta();
+        if (meta != null) {
+            meta.setEnchantmentGlintOverride(true);
+            activeTab.setItemMeta(meta);
+        }
+        return new ShopCategory(id, tab, activeTab, Collections.unmodifiableList(offers));
+    }
+
+    private static ShopOffer compileOffer(String key, ConfigurationSection section) {
+        String materialName = section.getString("material");
+        Material mat = materialName == null ? null : Material.matchMaterial(materialName);
+        if (mat == null || !mat.isItem() || mat.isAir()) throw new IllegalArgumentException("неизвестный предмет " + materialName);
+        int amount = section.getInt("amount", 1);
+        if (amount < 1) throw new IllegalArgumentException("amount должен быть больше 0");
+        int price = section.getInt("price");
+        if (price < 0) throw new IllegalArgumentException("цена не может быть отрицательной");
+
+        ItemStack reward = new ItemStack(mat, amount);
+        if (section.contains("potion-type") && reward.getItemMeta() instanceof PotionMeta meta) {
+            meta.setBasePotionType(PotionType.valueOf(section.getString("potion-type")));
+            reward.setItemMeta(meta);
+        }
+
+        String name = section.getString("name");
+        String displayName = name != null ? name.replace("&", "§") : mat.name().replace("_", " ");
+        ItemStack icon = icon(reward, displayName, List.of(
+            "§7Цена: §b" + price + " AFK-монет", "", "§eНажмите, чтобы купить!", "§eShift-клик — выбрать количество"));
+        ItemStack lockedIcon = icon(reward, displayName, List.of(
+            "§7Цена: §b" + price + " AFK-монет", "", "§cНе хватает AFK-монет"));
+        return new ShopOffer(key, price, amount, mat.name().replace("_", " "), icon, lockedIcon, reward);
+    }
+
+    private static ItemStack icon(ItemStack reward, String name, List<String> lore) {
+        ItemStack icon = reward.clone();
+        ItemMeta meta = icon.getItemMeta();
+        if (meta != null) {
+            meta.setDisplayName(name);
+            meta.setLore(lore);
+            icon.setItemMeta(meta);
+        }
+        return icon;
+    }
+
+    private static ItemStack button(Material mat, String name) {
+        ItemStack item = new ItemStack(mat);
+        ItemMeta meta = item.getItemMeta();
+        if (meta != null) {
+            meta.setDisplayName(name);
+            item.setItemMeta(meta);
+        }
+        return item;
+    }
+}
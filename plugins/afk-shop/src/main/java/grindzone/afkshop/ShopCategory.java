@@ -0,0 +1,13 @@
+package grindzone.afkshop;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.util.List;
+
+/** Категория каталога: вкладка в нижнем ряду меню и её товары по порядку из config.yml */
+public record ShopCategory(String id, ItemStack tab, ItemStack activeTab, List<ShopOffer> offers) {
+
+    public int pages() {
+        return Math.max(1, (offers.size() + ShopCatalog.PAGE_SIZE - 1) / ShopCatalog.PAGE_SIZE);
+    }
+}
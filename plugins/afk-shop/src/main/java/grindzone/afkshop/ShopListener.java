@@ -1,31 +1,74 @@
 package grindzone.afkshop;
 
+import grindzone.common.Metrics;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
+import org.bukkit.event.inventory.ClickType;
 import org.bukkit.event.inventory.InventoryClickEvent;
-import org.bukkit.inventory.ItemStack;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.inventory.InventoryHolder;
 
 public class ShopListener implements Listener {
 
     private final AFKShopPlugin plugin;
+    private final Metrics.Histogram clickTime;
 
     public ShopListener(AFKShopPlugin plugin) {
         this.plugin = plugin;
+        this.clickTime = plugin.getMetrics().histogram("click", "Клик в меню магазина (ShopListener.onClick)");
     }
 
     @EventHandler
     public void onClick(InventoryClickEvent e) {
         if (!(e.getWhoClicked() instanceof Player p)) return;
-        if (!(e.getInventory().getHolder() instanceof AFKShopHolder)) return;
+        InventoryHolder top = e.getInventory().getHolder();
+        if (!(top instanceof AFKShopHolder) && !(top instanceof QuantityMenu)) return;
+        long start = System.nanoTime();
+        try {
+            onShopClick(e, p, top);
+        } finally {
+            clickTime.recordSince(start);
+        }
+    }
+
+    private void onShopClick(InventoryClickEvent e, Player p, InventoryHolder top) {
+        if (top instanceof QuantityMenu menu) {
+            e.setCancelled(true);
+            if (e.getClick() != ClickType.LEFT && e.getClick() != ClickType.RIGHT) return;
+            if (e.getRawSlot() < e.getInventory().getSize()) menu.onClick(p, e.getRawSlot());
+            return;
+        }
+        if (!(top instanceof AFKShopHolder holder)) return;
 
         e.setCancelled(true);
 
-        if (plugin.getCurrency() == null) return;
-        ItemStack clicked = e.getCurrentItem();
-        if (clicked == null) return;
+        if (plugin.getWallet() == null) return;
+        if (e.getClick() != ClickType.DOUBLE_CLICK && holder.navigate(e.getRawSlot())) return;
+        ShopOffer offer = holder.offer(e.getRawSlot());
+        if (offer == null) return;
+
+        // Двойной клик и цифры хотбара дают лишние события — покупка только по обычному клику
+        switch (e.getClick()) {
+            case LEFT, RIGHT -> {
+                plugin.onPurchaseClick(p, offer);
+                holder.refresh();
+            }
+            case SHIFT_LEFT, SHIFT_RIGHT -> plugin.openQuantityMenu(p, holder, offer);
+            default -> { }
+        }
+    }
+
+    @EventHandler
+    public void onDrag(InventoryDragEvent e) {
+        InventoryHolder holder = e.getInventory().getHolder();
+        if (holder instanceof AFKShopHolder || holder instanceof QuantityMenu) e.setCancelled(true);
+    }
 
-        plugin.onPurchaseClick(p, e.getRawSlot(), clicked);
+    @EventHandler
+    public void onQuit(PlayerQuitEvent e) {
+        plugin.getPurchases().forget(e.getPlayer().getUniqueId());
     }
 
 }
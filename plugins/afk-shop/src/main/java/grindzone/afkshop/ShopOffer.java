@@ -0,0 +1,15 @@
+package grindzone.afkshop;
+
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * Скомпилированный товар: иконка для меню (и её вариант «не хватает монет») и шаблон выдачи
+ * готовы заранее. Шаблон не выдаётся напрямую — только его клон.
+ */
+public record ShopOffer(String key, int price, int amount, String itemName, ItemStack icon, ItemStack lockedIcon, ItemStack reward) {
+
+    /** Новый экземпляр предмета для выдачи игроку */
+    public ItemStack createReward() {
+        return reward.clone();
+    }
+}
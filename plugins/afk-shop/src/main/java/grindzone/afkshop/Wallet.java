@@ -0,0 +1,11 @@
+package grindzone.afkshop;
+
+import org.bukkit.entity.Player;
+
+/** Баланс AFK-монет игрока, из которого магазин списывает оплату */
+public interface Wallet {
+
+    double balance(Player p);
+
+    void withdraw(Player p, double amount);
+}
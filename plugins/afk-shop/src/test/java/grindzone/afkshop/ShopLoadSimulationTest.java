@@ -0,0 +1,131 @@
+package grindzone.afkshop;
+
+import grindzone.common.LoadReport;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.inventory.InventoryView;
+import org.bukkit.inventory.ItemStack;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.ServerMock;
+import org.mockbukkit.mockbukkit.entity.PlayerMock;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Флуд кликами по магазину: каждый игрок каждый тик жмёт по товару обычными, двойными
+ * кликами и цифрами хотбара, пока не кончатся монеты. Кулдаун выключен, чтобы защита от
+ * двойного списания держалась только на самой транзакции. Инварианты: одно списание на
+ * покупку, потраченное = выданное, без ухода в минус, журнал совпадает со списаниями,
+ * клики по недоступным товарам не доходят до Wallet, после выхода игроков карты
+ * PurchaseService пусты.
+ */
+class ShopLoadSimulationTest {
+
+    private static final int PLAYERS = 100;
+    private static final int TICKS = 200;
+    private static final double START_BALANCE = 500;
+    private static final ClickType[] CLICKS = {ClickType.LEFT, ClickType.LEFT, ClickType.DOUBLE_CLICK, ClickType.RIGHT, ClickType.NUMBER_KEY};
+
+    private ServerMock server;
+    private SimulatedShopPlugin plugin;
+
+    @BeforeEach
+    void setUp() {
+        server = MockBukkit.mock();
+        plugin = MockBukkit.load(SimulatedShopPlugin.class);
+        plugin.getConfig().set("click-cooldown-ms", 0);
+        plugin.getConfig().set("ledger.fsync-seconds", 0);
+        plugin.getConfig().set("metrics.enabled", false);
+        plugin.saveConfig();
+        server.dispatchCommand(server.getConsoleSender(), "afkshop reload");
+    }
+
+    @AfterEach
+    void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    @Test
+    void clickFlood() throws Exception {
+        LoadReport report = new LoadReport("afk-shop-click-flood");
+        List<PlayerMock> players = new ArrayList<>();
+        List<InventoryView> views = new ArrayList<>();
+        for (int i = 0; i < PLAYERS; i++) {
+            PlayerMock p = server.addPlayer("buyer" + i);
+            plugin.memoryWallet.balances.put(p.getUniqueId(), START_BALANCE);
+            plugin.openShop(p);
+            players.add(p);
+            views.add(p.getOpenInventory());
+        }
+        AFKShopHolder holder = (AFKShopHolder) views.get(0).getTopInventory().getHolder();
+        int slot = 0;
+        while (holder.offer(slot) == null) slot++;
+        ShopOffer offer = holder.offer(slot);
+        int offerSlot = slot;
+
+        for (int t = 0; t < TICKS; t++) {
+            ClickType click = CLICKS[t % CLICKS.length];
+            report.tick(() -> {
+                for (int i = 0; i < PLAYERS; i++) {
+                    players.get(i).simulateInventoryClick(views.get(i), click, offerSlot);
+                }
+                server.getScheduler().performOneTick();
+            });
+        }
+
+        long purchases = plugin.getMetrics().counter("purchases", "").get();
+        long withdrawals = plugin.memoryWallet.withdrawals.get();
+        ItemStack reward = offer.createReward();
+        long spent = 0;
+        boolean matches = true;
+        for (PlayerMock p : players) {
+            double paid = START_BALANCE - plugin.getWallet().balance(p);
+            int items = 0;
+            for (ItemStack stack : p.getInventory().getStorageContents()) {
+                if (stack != null && stack.isSimilar(reward)) items += stack.getAmount();
+            }
+            matches &= paid == (double) items / offer.amount() * offer.price();
+            spent += (long) paid;
+        }
+        report.put("players", PLAYERS);
+        report.put("clicks", (long) PLAYERS * TICKS);
+        report.put("purchases", purchases);
+        report.put("coins_spent", spent);
+        report.put("click_handler", plugin.getMetrics().histogram("click", "").count());
+        report.check("one_debit_per_purchase", withdrawals == purchases);
+        report.check("paid_equals_delivered", matches);
+        report.check("no_overdraft", plugin.memoryWallet.overdrafts.get() == 0);
+        // Чтение баланса: одно при открытии магазина и одно на каждую покупку, прошедшую кэш
+        long lookups = plugin.memoryWallet.lookups.get();
+        report.put("balance_lookups", lookups);
+        report.check("unaffordable_clicks_skip_wallet", lookups <= PLAYERS + purchases);
+
+        for (PlayerMock p : players) {
+            p.disconnect();
+        }
+        report.check("no_entries_after_quit", plugin.getPurchases().trackedPlayers() == 0);
+
+        // Выключение плагина дописывает журнал на диск
+        server.getPluginManager().disablePlugin(plugin);
+        Path ledger = plugin.getDataFolder().toPath().resolve("purchases.csv");
+        List<String> lines = Files.exists(ledger) ? Files.readAllLines(ledger, StandardCharsets.UTF_8) : List.of();
+        long ledgerCoins = 0;
+        for (String line : lines) {
+            String[] parts = line.split(",");
+            ledgerCoins += Long.parseLong(parts[5]);
+        }
+        report.put("ledger_lines", lines.size());
+        report.check("ledger_matches_debits", lines.size() == purchases && ledgerCoins == spent);
+
+        report.write();
+        assertTrue(report.passed(), report.failures());
+    }
+}
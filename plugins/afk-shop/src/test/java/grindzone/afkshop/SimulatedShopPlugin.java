@@ -0,0 +1,41 @@
+package grindzone.afkshop;
+
+import org.bukkit.entity.Player;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** AFKShop с балансом в памяти вместо CoinsEngine: под MockBukkit CoinsEngine не запустить */
+public class SimulatedShopPlugin extends AFKShopPlugin {
+
+    final MemoryWallet memoryWallet = new MemoryWallet();
+
+    @Override
+    Wallet createWallet() {
+        return memoryWallet;
+    }
+
+    /** Баланс с учётом каждого обращения: чтения, списания, уход в минус */
+    static final class MemoryWallet implements Wallet {
+
+        final Map<UUID, Double> balances = new ConcurrentHashMap<>();
+        final AtomicLong lookups = new AtomicLong();
+        final AtomicLong withdrawals = new AtomicLong();
+        final AtomicLong overdrafts = new AtomicLong();
+
+        @Override
+        public double balance(Player p) {
+            lookups.incrementAndGet();
+            return balances.getOrDefault(p.getUniqueId(), 0.0);
+        }
+
+        @Override
+        public void withdraw(Player p, double amount) {
+            withdrawals.incrementAndGet();
+            double left = balances.merge(p.getUniqueId(), -amount, Double::sum);
+            if (left < 0) overdrafts.incrementAndGet();
+        }
+    }
+}
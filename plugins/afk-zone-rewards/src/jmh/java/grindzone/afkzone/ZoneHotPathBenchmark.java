@@ -0,0 +1,210 @@
+package grindzone.afkzone;
+
+import grindzone.common.Metrics;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Горячий путь AFK-зоны на синтетических игроках (Player — заглушка через Proxy, без сервера).
+ * Каждый бенчмарк обходит всех игроков, т.е. одна операция = один проход по players.
+ * Запуск: gradlew jmh (отчёт с gc-профайлером — build/results/jmh/results.json).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ZoneHotPathBenchmark {
+
+    private static final String WORLD = "world_sandbox";
+    private static final long TICK_NANOS = 50_000_000L;
+    /** Период задачи игрока по умолчанию (tick-buckets) */
+    private static final int PERIOD = 20;
+
+    @Param({"100", "1000", "5000"})
+    public int players;
+
+    private ZoneIndex index;
+    private TierTable tiers;
+    private ZoneDisplay display;
+    private String[] worlds;
+    private int[] xs, ys, zs;
+    private Player[] stubs;
+    private List<ZoneSession> sessions;
+    /** Сессии в порядке срабатывания их задач за период и тик срабатывания каждой */
+    private ZoneSession[] scheduled;
+    private int[] due;
+    private ZoneTicker ticker;
+    private Metrics.Histogram processTime;
+    private long clock;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tiers = TierTable.fromConfig(null);
+        int[] intervals = tiers.intervals();
+        List<Zone> zones = new ArrayList<>();
+        zones.add(new CuboidZone("main", WORLD, intervals, 8659467, 62, -3812039, 8659518, 87, -3811998));
+        Random random = new Random(42);
+        for (int i = 0; i < 50; i++) {
+            int x = random.nextInt(20_000) - 10_000;
+            int z = random.nextInt(20_000) - 10_000;
+            zones.add(new CuboidZone("extra" + i, WORLD, intervals, x, 60, z, x + 40, 90, z + 40));
+        }
+        index = new ZoneIndex(zones);
+        display = new ZoneDisplay(new YamlConfiguration(), 1200);
+
+        // Треть игроков в зоне, треть в том же мире вне зон, треть в другом мире
+        worlds = new String[players];
+        xs = new int[players];
+        ys = new int[players];
+        zs = new int[players];
+        stubs = new Player[players];
+        for (int i = 0; i < players; i++) {
+            switch (i % 3) {
+                case 0 -> place(i, WORLD, 8659467 + random.nextInt(52), 62 + random.nextInt(26), -3812039 + random.nextInt(42));
+                case 1 -> place(i, WORLD, random.nextInt(2_000_000) - 1_000_000, 70, random.nextInt(2_000_000) - 1_000_000);
+                default -> place(i, "world_nether", random.nextInt(10_000), 70, random.nextInt(10_000));
+            }
+            stubs[i] = stubPlayer(new UUID(random.nextLong(), random.nextLong()), "bench" + i, i % 4);
+        }
+
+        sessions = new ArrayList<>();
+        Zone main = zones.get(0);
+        for (Player p : stubs) {
+            ZoneSession session = new ZoneSession(p, main);
+            session.lastNanos = 0;
+            sessions.add(session);
+        }
+        // Сдвиг первого запуска — как в ZoneTracker.schedule
+        scheduled = sessions.stream()
+            .sorted(Comparator.comparingInt(this::offset))
+            .toArray(ZoneSession[]::new);
+        due = new int[players];
+        for (int i = 0; i < players; i++) due[i] = offset(scheduled[i]);
+        processTime = new Metrics("bench").histogram("process", "Обработка игрока в зоне");
+    }
+
+    private int offset(ZoneSession session) {
+        return Math.floorMod(session.player.getUniqueId().hashCode(), PERIOD);
+    }
+
+    /** Очередь наград растёт с каждой выдачей — на каждую итерацию новая */
+    @Setup(Level.Iteration)
+    public void freshTicker() {
+        ticker = new ZoneTicker(new RewardQueue(Logger.getLogger("bench")));
+        ticker.configure(tiers, display);
+    }
+
+    @Benchmark
+    public void isInZone(Blackhole bh) {
+        for (int i = 0; i < players; i++) {
+            bh.consume(index.find(worlds[i], xs[i], ys[i], zs[i]));
+        }
+    }
+
+    /** Старая проверка: сравнение имени мира + куб, для сравнения с индексом */
+    @Benchmark
+    public void isInZoneLegacy(Blackhole bh) {
+        for (int i = 0; i < players; i++) {
+            int x = xs[i], y = ys[i], z = zs[i];
+            bh.consume(WORLD.equals(worlds[i])
+                && x >= 8659467 && x <= 8659518 && y >= 62 && y <= 87 && z >= -3812039 && z <= -3811998);
+        }
+    }
+
+    @Benchmark
+    public void tierResolveUncached(Blackhole bh) {
+        for (Player p : stubs) {
+            bh.consume(tiers.resolve(p));
+        }
+    }
+
+    @Benchmark
+    public void tierResolveCached(Blackhole bh) {
+        for (ZoneSession session : sessions) {
+            bh.consume(ticker.intervalSeconds(session));
+        }
+    }
+
+    @Benchmark
+    public void formatTimeConcat(Blackhole bh) {
+        for (int i = 0; i < players; i++) {
+            bh.consume(ZoneDisplay.format(i % 1201));
+        }
+    }
+
+    @Benchmark
+    public void formatTimeCached(Blackhole bh) {
+        for (int i = 0; i < players; i++) {
+            bh.consume(display.time(i % 1201));
+        }
+    }
+
+    /**
+     * Полная секунда сервера: 20 тиков, в каждом — задачи игроков, чей сдвиг выпал на этот тик.
+     * Каждая задача — как AFKZoneRewardsPlugin.process: обработка одной сессии и запись в гистограмму.
+     */
+    @Benchmark
+    public void simulatedSecond() {
+        int next = 0;
+        for (int t = 0; t < PERIOD; t++) {
+            clock += TICK_NANOS;
+            for (; next < players && due[next] == t; next++) {
+                long start = System.nanoTime();
+                ticker.process(scheduled[next], clock);
+                processTime.recordSince(start);
+            }
+        }
+    }
+
+    private void place(int i, String world, int x, int y, int z) {
+        worlds[i] = world;
+        xs[i] = x;
+        ys[i] = y;
+        zs[i] = z;
+    }
+
+    /** Заглушка Player: права по индексу тира, остальные методы — пустые (ноль нужного типа) */
+    private static Player stubPlayer(UUID uuid, String name, int tier) {
+        String[] permissions = {"axafkzone.tier.legend", "axafkzone.tier.premium", "axafkzone.tier.vip"};
+        return (Player) Proxy.newProxyInstance(Player.class.getClassLoader(), new Class<?>[]{Player.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getUniqueId": return uuid;
+                case "getName": return name;
+                case "hasPermission":
+                    return args[0] instanceof String perm && tier < permissions.length && perm.equals(permissions[tier]);
+                case "hashCode": return uuid.hashCode();
+                case "equals": return proxy == args[0];
+                case "toString": return name;
+                default:
+                    Class<?> type = method.getReturnType();
+                    if (type == boolean.class) return false;
+                    if (type == int.class) return 0;
+                    if (type == long.class) return 0L;
+                    if (type == double.class) return 0d;
+                    if (type == float.class) return 0f;
+                    if (type == short.class) return (short) 0;
+                    if (type == byte.class) return (byte) 0;
+                    if (type == char.class) return '\0';
+                    return null;
+            }
+        });
+    }
+}
@@ -8,6 +8,8 @@ import org.jetbrains.annotations.NotNull;
  * PlaceholderAPI expansion для AFKZoneRewards.
  * %afkzonerewards_in_zone% — "true" / "false"
  * %afkzonerewards_time_left% — "M:SS" до награды
+ * %afkzonerewards_zone% — id зоны, в которой стоит игрок
+ * Значения берутся из снимка, опубликованного тиком, — без Bukkit-вызовов, из любого потока.
  */
 public class AFKZoneRewardsExpansion extends PlaceholderExpansion {
 
@@ -42,15 +44,17 @@ public class AFKZoneRewardsExpansion extends PlaceholderExpansion {
 
     @Override
     public String onRequest(OfflinePlayer player, @NotNull String params) {
-        if (player == null || !player.isOnline()) return "";
-        var p = player.getPlayer();
-        if (p == null) return "";
+        if (player == null) return "";
+        ZoneSnapshot snapshot = plugin.getSnapshot(player.getUniqueId());
 
         if (params.equalsIgnoreCase("in_zone")) {
-            return plugin.isInZone(p) ? "true" : "false";
+            return snapshot != null ? "true" : "false";
         }
         if (params.equalsIgnoreCase("time_left")) {
-            return plugin.getTimeLeftFormatted(p);
+            return snapshot != null ? snapshot.timeLeft() : "";
+        }
+        if (params.equalsIgnoreCase("zone")) {
+            return snapshot != null ? snapshot.zone() : "";
         }
         return null;
     }
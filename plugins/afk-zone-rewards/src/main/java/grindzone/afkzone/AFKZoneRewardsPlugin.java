@@ -1,15 +1,20 @@
 package grindzone.afkzone;
 
-import net.kyori.adventure.bossbar.BossBar;
+import grindzone.common.Metrics;
 import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
 
 /**
  * AFK-зона с наградами по привилегиям (Legend 5 мин, Premium 10 мин, VIP 15 мин, Default 20 мин).
@@ -17,30 +22,30 @@ import java.util.UUID;
  */
 public class AFKZoneRewardsPlugin extends JavaPlugin {
 
-    // Зона по координатам (world_sandbox, cuboid как в AxAFKZone/WorldGuard)
-    private static final String ZONE_WORLD = "world_sandbox";
-    private static final int MIN_X = 8659467;
-    private static final int MAX_X = 8659518;
-    private static final int MIN_Y = 62;
-    private static final int MAX_Y = 87;
-    private static final int MIN_Z = -3812039;
-    private static final int MAX_Z = -3811998;
-
-    // Permission -> интервал в секундах (от большего к меньшему для проверки)
-    private static final String[][] TIERS = {
-        {"axafkzone.tier.legend", "300"},   // 5 мин
-        {"axafkzone.tier.premium", "600"},  // 10 мин
-        {"axafkzone.tier.vip", "900"},      // 15 мин
-        {"axafkzone.tier.default", "1200"}  // 20 мин
-    };
-
     private static final LegacyComponentSerializer LEGACY = LegacyComponentSerializer.legacyAmpersand();
 
-    private final Map<UUID, Integer> secondsInZone = new HashMap<>();
-    private final Map<UUID, BossBar> playerBossBars = new HashMap<>();
-    private int taskId = -1;
+    private final ZoneTracker tracker = new ZoneTracker(this);
+    private final RewardQueue rewards = new RewardQueue(getLogger());
+    private final ZoneTicker ticker = new ZoneTicker(rewards);
+    private final ZoneVisibility visibility = new ZoneVisibility(this);
+    private ProgressStore progress;
+    private volatile TierTable tiers;
+    private volatile ZoneIndex zones = new ZoneIndex(List.of());
+    private LuckPermsHook luckPerms;
+    private volatile boolean msptAdaptive = true;
+    private double degradeMspt = 40;
+    private double restoreMspt = 30;
+    private int degradedDivisor = 3;
+    private final Metrics metrics = new Metrics("afkzone");
+    private final Metrics.Histogram processTime = metrics.histogram("process", "Обработка игрока в зоне (ZoneTicker.process)");
+    private final Metrics.Histogram drainTime = metrics.histogram("reward_drain", "Разбор очереди выплат за тик");
+    private final Metrics.Counter rewardsPaid = metrics.counter("rewards_paid", "Выданные награды");
+    private volatile Path metricsFile;
+    /** Часы времени в зоне; подменяются только в симуляции нагрузки (src/test) */
+    private volatile LongSupplier clock = System::nanoTime;
 
     // Центр AFK-зоны для телепорта (как warp afk)
+    private static final String TP_WORLD = "world_sandbox";
     private static final double TP_X = 8659486.25;
     private static final double TP_Y = 71.0;
     private static final double TP_Z = -3812023.5;
@@ -50,6 +55,15 @@ public class AFKZoneRewardsPlugin extends JavaPlugin {
     @Override
     public void onEnable() {
         saveDefaultConfig();
+        progress = new ProgressStore(getDataFolder().toPath().resolve("progress.dat"), getLogger());
+        loadSettings();
+        progress.load();
+        rewards.loadPending(pendingRewardsFile());
+        getServer().getPluginManager().registerEvents(tracker, this);
+        tracker.refreshAll();
+        if (Bukkit.getPluginManager().isPluginEnabled("LuckPerms")) {
+            luckPerms = new LuckPermsHook(this);
+        }
         if (Bukkit.getPluginManager().isPluginEnabled("PlaceholderAPI")) {
             new AFKZoneRewardsExpansion(this).register();
         }
@@ -64,123 +78,249 @@ public class AFKZoneRewardsPlugin extends JavaPlugin {
                     p.sendMessage(LEGACY.deserialize("&7Для баланса AFK-монет: &b/afkcoins balance"));
                     return true;
                 }
-                var world = Bukkit.getWorld(ZONE_WORLD);
+                var world = Bukkit.getWorld(TP_WORLD);
                 if (world == null) {
-                    p.sendMessage(LEGACY.deserialize("&cМир " + ZONE_WORLD + " не найден!"));
+                    p.sendMessage(LEGACY.deserialize("&cМир " + TP_WORLD + " не найден!"));
                     return true;
                 }
-                p.teleport(new Location(world, TP_X, TP_Y, TP_Z, TP_YAW, TP_PITCH));
+                p.teleportAsync(new Location(world, TP_X, TP_Y, TP_Z, TP_YAW, TP_PITCH));
                 p.sendMessage(LEGACY.deserialize("&aТелепорт в AFK-зону!"));
                 return true;
             });
         }
-        taskId = Bukkit.getScheduler().scheduleSyncRepeatingTask(this, this::tick, 20L, 20L);
-        getLogger().info("AFKZoneRewards включён. Команда /afk, интервалы: Legend 5м, Premium 10м, VIP 15м, Default 20м.");
+        var adminCmd = getCommand("afkzonerewards");
+        if (adminCmd != null) {
+            adminCmd.setExecutor((sender, cmd, label, args) -> {
+                if (args.length == 1 && args[0].equalsIgnoreCase("reload")) {
+                    reloadConfig();
+                    loadSettings();
+                    tracker.refreshAll();
+                    sender.sendMessage(LEGACY.deserialize("&aAFKZoneRewards перезагружен, зон: " + zones.getZones().size()));
+                    return true;
+                }
+                if (args.length == 1 && args[0].equalsIgnoreCase("metrics")) {
+                    sender.sendMessage("§6AFKZoneRewards — метрики (в зоне: " + tracker.sessions().size() + ", скрыто друг от друга: "
+                        + visibility.size() + ", в очереди выплат: " + rewards.size() + "):");
+                    metrics.summary().forEach(sender::sendMessage);
+                    return true;
+                }
+                sender.sendMessage(LEGACY.deserialize("&7Использование: &e/" + label + " <reload|metrics>"));
+                return true;
+            });
+        }
+        // Глобальный планировщик: на Paper это основной поток, на Folia — глобальный регион
+        Bukkit.getGlobalRegionScheduler().runAtFixedRate(this, task -> updateLoadMode(), 20L, 20L);
+        Bukkit.getGlobalRegionScheduler().runAtFixedRate(this, task -> drainRewards(), 1L, 1L);
+        long flushTicks = Math.max(1, getConfig().getInt("progress.flush-seconds", 30)) * 20L;
+        Bukkit.getGlobalRegionScheduler().runAtFixedRate(this, task -> checkpointProgress(), flushTicks, flushTicks);
+        long metricsSeconds = Math.max(1, getConfig().getInt("metrics.write-seconds", 15));
+        Bukkit.getAsyncScheduler().runAtFixedRate(this, task -> writeMetrics(), metricsSeconds, metricsSeconds, TimeUnit.SECONDS);
+        getLogger().info("AFKZoneRewards включён. Команда /afk, зон: " + zones.getZones().size() + ".");
     }
 
     @Override
     public void onDisable() {
-        if (taskId >= 0) Bukkit.getScheduler().cancelTask(taskId);
-        playerBossBars.forEach((uuid, bar) -> {
-            Player p = Bukkit.getPlayer(uuid);
-            if (p != null && p.isOnline()) p.hideBossBar(bar);
-        });
-        playerBossBars.clear();
-    }
-
-    private void tick() {
-        for (Player p : Bukkit.getOnlinePlayers()) {
-            if (!p.isOnline()) continue;
-            if (!isInZone(p.getLocation())) {
-                secondsInZone.remove(p.getUniqueId());
-                hideBossBar(p);
-                continue;
-            }
+        Bukkit.getGlobalRegionScheduler().cancelTasks(this);
+        Bukkit.getAsyncScheduler().cancelTasks(this);
+        rewardsPaid.add(rewards.drainAll());
+        rewards.savePending(pendingRewardsFile());
+        writeMetrics();
+        if (luckPerms != null) luckPerms.close();
+        // До tracker.clear(): при выключенном плагине leave() уже не может планировать задачи
+        visibility.showAll();
+        tracker.clear();
+        if (progress != null) progress.flush();
+    }
 
-            int sec = secondsInZone.getOrDefault(p.getUniqueId(), 0) + 1;
-            secondsInZone.put(p.getUniqueId(), sec);
+    private Path pendingRewardsFile() {
+        return getDataFolder().toPath().resolve("pending-rewards.txt");
+    }
 
-            int interval = getIntervalSeconds(p);
-            if (sec >= interval) {
-                giveReward(p);
-                secondsInZone.put(p.getUniqueId(), 0);
+    /** Тиры и зоны из config.yml; кэш тиров игроков сбрасывается */
+    private void loadSettings() {
+        try {
+            tiers = TierTable.fromConfig(getConfig().getConfigurationSection("tiers"));
+        } catch (IllegalArgumentException ex) {
+            getLogger().warning("Секция tiers некорректна (" + ex.getMessage() + "), используются тиры по умолчанию.");
+            tiers = TierTable.fromConfig(null);
+        }
+        zones = loadZones();
+        int maxSeconds = 0;
+        for (Zone zone : zones.getZones()) maxSeconds = Math.max(maxSeconds, zone.getMaxIntervalSeconds());
+        ticker.configure(tiers, new ZoneDisplay(getConfig(), maxSeconds));
+        msptAdaptive = getConfig().getBoolean("adaptive-ui.enabled", true);
+        degradeMspt = getConfig().getDouble("adaptive-ui.mspt-threshold", 40);
+        restoreMspt = getConfig().getDouble("adaptive-ui.restore-mspt", 30);
+        degradedDivisor = Math.max(1, getConfig().getInt("adaptive-ui.refresh-divisor", 3));
+        if (!msptAdaptive) ticker.setUiDivisor(1);
+        tracker.setBucketCount(Math.max(1, Math.min(100, getConfig().getInt("tick-buckets", 20))));
+        rewards.configure(getConfig());
+        progress.configure(getConfig().getConfigurationSection("progress"));
+        tracker.resetCaches();
+        if (visibility.configure(getConfig().getConfigurationSection("visibility-culling"))) {
+            // Режим включён на ходу: скрыть тех, кто уже стоит в зонах
+            for (ZoneSession session : tracker.sessions()) {
+                session.player.getScheduler().run(this, task -> {
+                    if (tracker.get(session.player.getUniqueId()) == session) visibility.enter(session.player);
+                }, null);
             }
-            updateBossBar(p);
-            sendActionBar(p);
         }
+        String file = getConfig().getString("metrics.file", "metrics.prom");
+        metricsFile = getConfig().getBoolean("metrics.enabled", true) && !file.isEmpty()
+            ? getDataFolder().toPath().resolve(file) : null;
+    }
+
+    private ZoneIndex loadZones() {
+        List<Zone> loaded = new ArrayList<>();
+        ConfigurationSection section = getConfig().getConfigurationSection("zones");
+        if (section != null) {
+            for (String id : section.getKeys(false)) {
+                ConfigurationSection zone = section.getConfigurationSection(id);
+                if (zone == null) continue;
+                try {
+                    loaded.add(Zone.fromConfig(id, zone, tiers));
+                } catch (IllegalArgumentException ex) {
+                    getLogger().warning("Зона '" + id + "' пропущена: " + ex.getMessage());
+                }
+            }
+        }
+        if (loaded.isEmpty()) getLogger().warning("В config.yml не задано ни одной AFK-зоны (zones).");
+        return new ZoneIndex(loaded);
+    }
+
+    ZoneIndex getZones() {
+        return zones;
+    }
+
+    ZoneTracker getTracker() {
+        return tracker;
+    }
+
+    Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Игрок в зоне попадает в обработку раз в tick-buckets тиков (задача ZoneTracker).
+     * Время считается по System.nanoTime, а не по тикам, поэтому при лаге сервера
+     * награды приходят вовремя.
+     */
+    void process(ZoneSession session) {
+        long start = System.nanoTime();
+        ticker.process(session, clock.getAsLong());
+        processTime.recordSince(start);
+    }
+
+    long now() {
+        return clock.getAsLong();
+    }
+
+    void setClock(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    private void drainRewards() {
+        long start = System.nanoTime();
+        int paid = rewards.drain();
+        if (paid == 0) return;
+        rewardsPaid.add(paid);
+        drainTime.recordSince(start);
+    }
+
+    /** Файл в текстовом формате Prometheus для textfile-коллектора node exporter */
+    private void writeMetrics() {
+        Path file = metricsFile;
+        if (file == null) return;
+        try {
+            metrics.writeTo(file);
+        } catch (IOException ex) {
+            getLogger().warning("Не удалось записать метрики в " + file + ": " + ex.getMessage());
+        }
+    }
+
+    /**
+     * При среднем MSPT выше adaptive-ui.mspt-threshold actionbar/BossBar обновляются
+     * раз в refresh-divisor обработок; ниже restore-mspt — снова каждую.
+     */
+    private void updateLoadMode() {
+        if (!msptAdaptive) return;
+        double mspt;
+        try {
+            mspt = Bukkit.getAverageTickTime();
+        } catch (UnsupportedOperationException ex) {
+            // Folia: общего MSPT сервера нет, у каждого региона свой
+            msptAdaptive = false;
+            getLogger().info("Средний MSPT недоступен на этом сервере, adaptive-ui выключен.");
+            return;
+        }
+        if (ticker.uiDivisor() == 1 && mspt > degradeMspt) {
+            ticker.setUiDivisor(degradedDivisor);
+            getLogger().info(String.format("MSPT %.1f — интерфейс AFK-зоны обновляется реже (1/%d).", mspt, degradedDivisor));
+        } else if (ticker.uiDivisor() > 1 && mspt < restoreMspt) {
+            ticker.setUiDivisor(1);
+            getLogger().info(String.format("MSPT %.1f — обычное обновление интерфейса AFK-зоны.", mspt));
+        }
+    }
+
+    /** Игрок зашёл на сервер — выдать награды, отложенные, пока его не было */
+    void onJoin(Player p) {
+        rewards.release(p.getUniqueId());
+    }
+
+    /** Игрок вошёл в зону — продолжить сохранённый таймер, если есть */
+    void onEnter(ZoneSession session) {
+        session.seconds = progress.restore(session.player.getUniqueId());
+        ticker.publish(session);
+        visibility.enter(session.player);
+    }
+
+    /**
+     * Игрок вышел из зоны (прогресс сбрасывается) или с сервера / сервер выключается
+     * (прогресс сохраняется до возвращения).
+     */
+    void onLeave(ZoneSession session, boolean keepProgress) {
+        UUID uuid = session.player.getUniqueId();
+        ticker.leave(session);
+        visibility.leave(session.player);
+        if (keepProgress) {
+            progress.save(uuid, session.seconds);
+        } else {
+            progress.reset(uuid);
+        }
+    }
+
+    /** Контрольная точка прогресса игроков в зоне; запись на диск — асинхронно */
+    private void checkpointProgress() {
+        for (ZoneSession session : tracker.sessions()) {
+            progress.checkpoint(session.player.getUniqueId(), session.seconds);
+        }
+        Bukkit.getAsyncScheduler().runNow(this, task -> progress.flush());
     }
 
     public boolean isInZone(Location loc) {
-        if (loc == null || !ZONE_WORLD.equals(loc.getWorld().getName())) return false;
-        int x = loc.getBlockX();
-        int y = loc.getBlockY();
-        int z = loc.getBlockZ();
-        return x >= MIN_X && x <= MAX_X && y >= MIN_Y && y <= MAX_Y && z >= MIN_Z && z <= MAX_Z;
+        return zones.find(loc) != null;
     }
 
+    /** Безопасно из любого потока: читает опубликованный снимок, а не Location */
     public boolean isInZone(Player p) {
-        return p != null && isInZone(p.getLocation());
+        return p != null && ticker.snapshot(p.getUniqueId()) != null;
+    }
+
+    /** Снимок игрока или null, если он не в зоне. Безопасно из любого потока. */
+    public ZoneSnapshot getSnapshot(UUID uuid) {
+        return ticker.snapshot(uuid);
     }
 
-    /** Формат M:SS до награды, или пустая строка если не в зоне */
+    /** Формат M:SS до награды, или пустая строка если не в зоне. Безопасно из любого потока. */
     public String getTimeLeftFormatted(Player p) {
-        if (!isInZone(p)) return "";
-        int sec = secondsInZone.getOrDefault(p.getUniqueId(), 0);
-        int interval = getIntervalSeconds(p);
-        int left = Math.max(0, interval - sec);
-        int min = left / 60;
-        int s = left % 60;
-        return min + ":" + (s < 10 ? "0" : "") + s;
-    }
-
-    private void sendActionBar(Player p) {
-        if (!getConfig().getBoolean("actionbar.enabled", true)) return;
-        String time = getTimeLeftFormatted(p);
-        if (time.isEmpty()) return;
-        String msg = getConfig().getString("actionbar.format", "&eДо награды: &a%time%")
-            .replace("%time%", time);
-        p.sendActionBar(LEGACY.deserialize(msg));
-    }
-
-    private void updateBossBar(Player p) {
-        if (!getConfig().getBoolean("bossbar.enabled", true)) return;
-        int sec = secondsInZone.getOrDefault(p.getUniqueId(), 0);
-        int interval = getIntervalSeconds(p);
-        float progress = Math.min(1f, (float) sec / interval);
-        String time = getTimeLeftFormatted(p);
-        String name = getConfig().getString("bossbar.format", "&a⌚ AFK-зона &7| До награды: &e%time%")
-            .replace("%time%", time);
-
-        BossBar bar = playerBossBars.computeIfAbsent(p.getUniqueId(), u -> {
-            BossBar b = BossBar.bossBar(LEGACY.deserialize(name), progress, BossBar.Color.GREEN, BossBar.Overlay.NOTCHED_20);
-            p.showBossBar(b);
-            return b;
-        });
-        bar.name(LEGACY.deserialize(name));
-        bar.progress(progress);
-    }
-
-    private void hideBossBar(Player p) {
-        BossBar bar = playerBossBars.remove(p.getUniqueId());
-        if (bar != null) p.hideBossBar(bar);
-    }
-
-    private int getIntervalSeconds(Player p) {
-        for (String[] tier : TIERS) {
-            if (p.hasPermission(tier[0])) {
-                return Integer.parseInt(tier[1]);
-            }
-        }
-        return 1200; // default 20 мин
+        if (p == null) return "";
+        ZoneSnapshot snapshot = ticker.snapshot(p.getUniqueId());
+        return snapshot == null ? "" : snapshot.timeLeft();
     }
 
-    private void giveReward(Player p) {
-        String cmd = getConfig().getString("reward-command", "afk give %player% 1")
-            .replace("%player%", p.getName());
-        Bukkit.dispatchCommand(Bukkit.getConsoleSender(), cmd);
-        String title = getConfig().getString("reward-title", "&aВы получили &f1 AFK-монету&a!");
-        if (!title.isEmpty()) {
-            p.sendMessage(net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer.legacyAmpersand().deserialize(title));
-        }
+    /** Права игрока изменились — тир будет вычислен заново при следующем обращении */
+    void invalidateTier(UUID uuid) {
+        ZoneSession session = tracker.get(uuid);
+        if (session != null) session.tier = -1;
     }
 }
@@ -0,0 +1,30 @@
+package grindzone.afkzone;
+
+import org.bukkit.entity.Player;
+import su.nightexpress.coinsengine.api.CoinsEngineAPI;
+import su.nightexpress.coinsengine.api.currency.Currency;
+
+/**
+ * Зачисление напрямую через API CoinsEngine: без разбора команды и её сообщений.
+ * Баланс меняется в кэше CoinsEngine, запись в БД он делает сам в своём асинхронном потоке.
+ * Класс загружается только когда CoinsEngine включён.
+ */
+final class CoinsEngineRewardSink implements RewardSink {
+
+    private final Currency currency;
+
+    private CoinsEngineRewardSink(Currency currency) {
+        this.currency = currency;
+    }
+
+    /** null, если валюты нет в CoinsEngine */
+    static CoinsEngineRewardSink create(String currencyId) {
+        Currency currency = CoinsEngineAPI.getCurrency(currencyId);
+        return currency == null ? null : new CoinsEngineRewardSink(currency);
+    }
+
+    @Override
+    public void pay(Player p, int amount) {
+        CoinsEngineAPI.addBalance(p, currency, amount);
+    }
+}
@@ -0,0 +1,34 @@
+package grindzone.afkzone;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+/**
+ * Выплата через консольную команду (reward-command) — для серверов без CoinsEngine.
+ * Если в команде нет %amount%, она выполняется amount раз.
+ */
+public class CommandRewardSink implements RewardSink {
+
+    private final String command;
+
+    public CommandRewardSink(String command) {
+        this.command = command;
+    }
+
+    @Override
+    public void pay(Player p, int amount) {
+        pay(p.getName(), amount);
+    }
+
+    /** Работает и для вышедших игроков — команда принимает ник */
+    public void pay(String name, int amount) {
+        String cmd = command.replace("%player%", name);
+        if (cmd.contains("%amount%")) {
+            Bukkit.dispatchCommand(Bukkit.getConsoleSender(), cmd.replace("%amount%", String.valueOf(amount)));
+            return;
+        }
+        for (int i = 0; i < amount; i++) {
+            Bukkit.dispatchCommand(Bukkit.getConsoleSender(), cmd);
+        }
+    }
+}
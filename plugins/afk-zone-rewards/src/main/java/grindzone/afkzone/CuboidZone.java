@@ -0,0 +1,15 @@
+package grindzone.afkzone;
+
+/** Прямоугольная зона (как cuboid в WorldGuard) */
+public class CuboidZone extends Zone {
+
+    public CuboidZone(String id, String world, int[] intervals,
+                      int x1, int y1, int z1, int x2, int y2, int z2) {
+        super(id, world, intervals, x1, y1, z1, x2, y2, z2);
+    }
+
+    @Override
+    public boolean contains(int x, int y, int z) {
+        return inBounds(x, y, z);
+    }
+}
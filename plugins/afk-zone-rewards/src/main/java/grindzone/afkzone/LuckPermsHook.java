@@ -0,0 +1,31 @@
+package grindzone.afkzone;
+
+import net.luckperms.api.LuckPermsProvider;
+import net.luckperms.api.event.EventSubscription;
+import net.luckperms.api.event.user.UserDataRecalculateEvent;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.util.UUID;
+
+/**
+ * Сброс кэша тира при изменении прав/групп в LuckPerms (/lp user ... parent set и т.п.).
+ * Загружается только если LuckPerms включён, иначе классы API не трогаются.
+ */
+final class LuckPermsHook {
+
+    private final EventSubscription<UserDataRecalculateEvent> subscription;
+
+    LuckPermsHook(AFKZoneRewardsPlugin plugin) {
+        subscription = LuckPermsProvider.get().getEventBus().subscribe(plugin, UserDataRecalculateEvent.class, e -> {
+            UUID uuid = e.getUser().getUniqueId();
+            // Событие может прийти из потока LuckPerms — сброс в потоке, владеющем игроком
+            Player p = Bukkit.getPlayer(uuid);
+            if (p != null) p.getScheduler().run(plugin, task -> plugin.invalidateTier(uuid), null);
+        });
+    }
+
+    void close() {
+        subscription.close();
+    }
+}
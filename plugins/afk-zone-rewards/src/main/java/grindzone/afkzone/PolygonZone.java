@@ -0,0 +1,51 @@
+package grindzone.afkzone;
+
+/**
+ * Многоугольная зона: контур по X/Z плюс диапазон высот.
+ * Блоки на рёбрах контура считаются внутри, как в WorldGuard.
+ */
+public class PolygonZone extends Zone {
+
+    private final int[] xs;
+    private final int[] zs;
+
+    public PolygonZone(String id, String world, int[] intervals, int[] xs, int[] zs, int minY, int maxY) {
+        super(id, world, intervals, min(xs), minY, min(zs), max(xs), maxY, max(zs));
+        this.xs = xs;
+        this.zs = zs;
+    }
+
+    @Override
+    public boolean contains(int x, int y, int z) {
+        if (!inBounds(x, y, z)) return false;
+        boolean inside = false;
+        for (int i = 0, j = xs.length - 1; i < xs.length; j = i++) {
+            int xi = xs[i], zi = zs[i], xj = xs[j], zj = zs[j];
+            if (onEdge(x, z, xi, zi, xj, zj)) return true;
+            if ((zi > z) != (zj > z)
+                && x < (double) (xj - xi) * (z - zi) / (zj - zi) + xi) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    private static boolean onEdge(int x, int z, int x1, int z1, int x2, int z2) {
+        long cross = (long) (x2 - x1) * (z - z1) - (long) (z2 - z1) * (x - x1);
+        return cross == 0
+            && x >= Math.min(x1, x2) && x <= Math.max(x1, x2)
+            && z >= Math.min(z1, z2) && z <= Math.max(z1, z2);
+    }
+
+    private static int min(int[] values) {
+        int m = Integer.MAX_VALUE;
+        for (int v : values) m = Math.min(m, v);
+        return m;
+    }
+
+    private static int max(int[] values) {
+        int m = Integer.MIN_VALUE;
+        for (int v : values) m = Math.max(m, v);
+        return m;
+    }
+}
@@ -0,0 +1,135 @@
+package grindzone.afkzone;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Журнал прогресса AFK-зоны: файл из записей фиксированной длины, только дозапись.
+ * Запись: UUID (2 long), секунды (int, -1 — удаление), время сохранения (long).
+ * append() можно звать из любого потока — запись попадает в очередь;
+ * flush() выполняется в асинхронном потоке и пишет всю очередь одним write,
+ * а когда мёртвых записей становится много — переписывает файл начисто (compaction).
+ */
+final class ProgressJournal {
+
+    static final int RECORD_SIZE = 8 + 8 + 4 + 8;
+    static final int REMOVED = -1;
+
+    record Entry(UUID uuid, int seconds, long savedAt) {}
+
+    private final Path file;
+    private final ConcurrentLinkedQueue<Entry> pending = new ConcurrentLinkedQueue<>();
+    /** Актуальное состояние файла; трогает только flush() под synchronized */
+    private final Map<UUID, Entry> live = new HashMap<>();
+    private long recordsInFile;
+
+    ProgressJournal(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Прочитать журнал (при включении плагина). Обрезанная последняя запись (сбой посреди
+     * записи) отрезается от файла, иначе следующая дозапись сдвинула бы все записи после неё.
+     */
+    synchronized List<Entry> load() throws IOException {
+        live.clear();
+        recordsInFile = 0;
+        if (Files.exists(file)) {
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                ByteBuffer buf = ByteBuffer.allocate(RECORD_SIZE * 512);
+                while (ch.read(buf) > 0 || buf.position() > 0) {
+                    buf.flip();
+                    if (buf.remaining() < RECORD_SIZE) break;
+                    while (buf.remaining() >= RECORD_SIZE) {
+                        Entry e = new Entry(new UUID(buf.getLong(), buf.getLong()), buf.getInt(), buf.getLong());
+                        apply(e);
+                        recordsInFile++;
+                    }
+                    buf.compact();
+                }
+                long valid = recordsInFile * RECORD_SIZE;
+                if (ch.size() > valid) {
+                    ch.truncate(valid);
+                    ch.force(false);
+                }
+            }
+        }
+        return new ArrayList<>(live.values());
+    }
+
+    void append(UUID uuid, int seconds, long savedAt) {
+        pending.add(new Entry(uuid, seconds, savedAt));
+    }
+
+    void remove(UUID uuid, long savedAt) {
+        append(uuid, REMOVED, savedAt);
+    }
+
+    /** Записать накопленное на диск; никогда не вызывается из тика */
+    synchronized void flush() throws IOException {
+        if (pending.isEmpty()) return;
+        List<Entry> batch = new ArrayList<>();
+        for (Entry e; (e = pending.poll()) != null; ) {
+            batch.add(e);
+            apply(e);
+        }
+        if (recordsInFile + batch.size() > live.size() * 2L + 1024) {
+            compact();
+            return;
+        }
+        Files.createDirectories(file.getParent());
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            write(ch, batch);
+            ch.force(false);
+        }
+        recordsInFile += batch.size();
+    }
+
+    /** Переписать файл только актуальными записями: временный файл + атомарная замена */
+    private void compact() throws IOException {
+        Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(ch, live.values());
+            ch.force(false);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        recordsInFile = live.size();
+    }
+
+    private void apply(Entry e) {
+        if (e.seconds() == REMOVED) {
+            live.remove(e.uuid());
+        } else {
+            live.put(e.uuid(), e);
+        }
+    }
+
+    private static void write(FileChannel ch, Iterable<Entry> entries) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(RECORD_SIZE * 256);
+        for (Entry e : entries) {
+            if (buf.remaining() < RECORD_SIZE) {
+                buf.flip();
+                while (buf.hasRemaining()) ch.write(buf);
+                buf.clear();
+            }
+            buf.putLong(e.uuid().getMostSignificantBits())
+                .putLong(e.uuid().getLeastSignificantBits())
+                .putInt(e.seconds())
+                .putLong(e.savedAt());
+        }
+        buf.flip();
+        while (buf.hasRemaining()) ch.write(buf);
+    }
+}
@@ -0,0 +1,109 @@
+package grindzone.afkzone;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Сохранённый прогресс игроков, вышедших из игры в AFK-зоне.
+ * В памяти — ограниченный LRU (max-entries) со сроком жизни (expire-hours);
+ * на диск изменения уходят через {@link ProgressJournal} (write-behind, вне основного потока).
+ * Методы синхронизированы: вход/выход игроков приходят из их регионов (Folia),
+ * контрольные точки — из глобального потока; flush() пишет журнал вне этой блокировки.
+ */
+public class ProgressStore {
+
+    private record Saved(int seconds, long savedAt) {}
+
+    private final Logger logger;
+    private final ProgressJournal journal;
+    private final LinkedHashMap<UUID, Saved> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    private boolean enabled = true;
+    private long expireMillis = 24L * 3600_000L;
+    private int maxEntries = 10_000;
+
+    public ProgressStore(Path file, Logger logger) {
+        this.journal = new ProgressJournal(file);
+        this.logger = logger;
+    }
+
+    public synchronized void configure(ConfigurationSection section) {
+        if (section == null) return;
+        enabled = section.getBoolean("enabled", true);
+        expireMillis = Math.max(1L, section.getLong("expire-hours", 24)) * 3600_000L;
+        maxEntries = Math.max(1, section.getInt("max-entries", 10_000));
+        trim(System.currentTimeMillis());
+    }
+
+    public synchronized void load() {
+        entries.clear();
+        try {
+            List<ProgressJournal.Entry> loaded = journal.load();
+            loaded.sort(Comparator.comparingLong(ProgressJournal.Entry::savedAt));
+            for (ProgressJournal.Entry e : loaded) {
+                entries.put(e.uuid(), new Saved(e.seconds(), e.savedAt()));
+            }
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Не удалось прочитать журнал прогресса AFK", ex);
+        }
+        trim(System.currentTimeMillis());
+    }
+
+    /** Забрать сохранённые секунды при входе в зону (0, если нет или устарели) */
+    public synchronized int restore(UUID uuid) {
+        if (!enabled) return 0;
+        Saved saved = entries.remove(uuid);
+        if (saved == null) return 0;
+        return System.currentTimeMillis() - saved.savedAt() > expireMillis ? 0 : saved.seconds();
+    }
+
+    /** Игрок вышел с сервера (или сервер выключается), находясь в зоне */
+    public synchronized void save(UUID uuid, int seconds) {
+        if (!enabled) return;
+        long now = System.currentTimeMillis();
+        entries.put(uuid, new Saved(seconds, now));
+        journal.append(uuid, seconds, now);
+        trim(now);
+    }
+
+    /** Контрольная точка прогресса игрока, который сейчас в зоне (на случай падения сервера) */
+    public synchronized void checkpoint(UUID uuid, int seconds) {
+        if (enabled) journal.append(uuid, seconds, System.currentTimeMillis());
+    }
+
+    /** Игрок ушёл из зоны — прогресс сбрасывается */
+    public synchronized void reset(UUID uuid) {
+        if (!enabled) return;
+        entries.remove(uuid);
+        journal.remove(uuid, System.currentTimeMillis());
+    }
+
+    /** Запись журнала на диск — вызывать из асинхронной задачи или при выключении */
+    public void flush() {
+        try {
+            journal.flush();
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Не удалось записать журнал прогресса AFK", ex);
+        }
+    }
+
+    private void trim(long now) {
+        Iterator<Map.Entry<UUID, Saved>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<UUID, Saved> e = it.next();
+            if (entries.size() <= maxEntries && now - e.getValue().savedAt() <= expireMillis) break;
+            it.remove();
+            journal.remove(e.getKey(), now);
+        }
+    }
+}
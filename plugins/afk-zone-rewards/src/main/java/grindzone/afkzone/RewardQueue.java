@@ -0,0 +1,223 @@
+package grindzone.afkzone;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Очередь выплат. Тик зоны только ставит награду в очередь; очередь разбирается каждый тик,
+ * награды одного игрока складываются в одно зачисление, зачислений за тик не больше
+ * reward-max-per-tick, так что одновременные награды не дают пик MSPT.
+ * add() вызывается из потоков игроков (регионы Folia), drain() — из глобального потока.
+ * Что не удалось выдать при выключении, сохраняется в файл и выдаётся после следующего запуска.
+ * Вышедшим игрокам reward-command платит по нику; при выплате через API CoinsEngine их награды
+ * откладываются (по одной записи на игрока) и возвращаются в очередь при входе — release().
+ */
+public class RewardQueue {
+
+    private record Payout(UUID uuid, String name, int amount) {}
+
+    private final Logger logger;
+    private final ConcurrentLinkedQueue<Payout> queue = new ConcurrentLinkedQueue<>();
+    /** Отложенные награды, сложенные по игроку: вышел до выплаты через API или CoinsEngine нет */
+    private final Map<UUID, Payout> held = new ConcurrentHashMap<>();
+
+    private String mode = "auto";
+    private String currencyId = "afk";
+    private volatile int amount = 1;
+    private int maxPerTick = 20;
+    /** reward-title с %amount%; null — не сообщать */
+    private String title;
+    private CommandRewardSink commandSink = new CommandRewardSink("afk give %player% %amount%");
+    private RewardSink sink;
+    private boolean direct;
+    private boolean missingWarned;
+
+    public RewardQueue(Logger logger) {
+        this.logger = logger;
+    }
+
+    public void configure(ConfigurationSection config) {
+        mode = config.getString("reward-mode", "auto").toLowerCase();
+        currencyId = config.getString("reward-currency", "afk");
+        amount = Math.max(1, config.getInt("reward-amount", 1));
+        maxPerTick = Math.max(1, config.getInt("reward-max-per-tick", 20));
+        commandSink = new CommandRewardSink(config.getString("reward-command", "afk give %player% %amount%"));
+        String text = config.getString("reward-title", "&aНачислено AFK-монет: &f%amount%");
+        title = text.isEmpty() ? null : text;
+        sink = null;
+        direct = false;
+        missingWarned = false;
+    }
+
+    public void add(Player p) {
+        queue.add(new Payout(p.getUniqueId(), p.getName(), amount));
+    }
+
+    /** Игрок вошёл — его отложенные награды снова в очередь */
+    public void release(UUID uuid) {
+        Payout payout = held.remove(uuid);
+        if (payout != null) queue.add(payout);
+    }
+
+    /** Ожидают выплаты: очередь и отложенные */
+    public int size() {
+        return queue.size() + held.size();
+    }
+
+    /** Вызывается каждый тик; возвращает число выданных наград */
+    public int drain() {
+        return drain(maxPerTick);
+    }
+
+    /** При выключении плагина — выдать всё, что можно; остальное забирает savePending() */
+    public int drainAll() {
+        return drain(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Сохранить невыданные награды: CoinsEngine (loadbefore) выключается раньше нас,
+     * и выдать их при выключении уже нечем. Строки «uuid имя сумма», дописываются в конец.
+     */
+    public void savePending(Path file) {
+        List<String> lines = new ArrayList<>();
+        for (Payout payout; (payout = queue.poll()) != null; ) {
+            lines.add(payout.uuid() + " " + payout.name() + " " + payout.amount());
+        }
+        for (Payout payout : held.values()) {
+            lines.add(payout.uuid() + " " + payout.name() + " " + payout.amount());
+        }
+        held.clear();
+        if (lines.isEmpty()) return;
+        try {
+            Files.createDirectories(file.getParent());
+            Files.write(file, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            logger.info("Невыданные награды сохранены до следующего запуска: " + lines.size());
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Не удалось сохранить невыданные награды (" + lines.size() + ")", ex);
+        }
+    }
+
+    /** Награды, не выданные при прошлом выключении, — обратно в очередь; файл удаляется */
+    public void loadPending(Path file) {
+        if (!Files.exists(file)) return;
+        try {
+            int restored = 0;
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String[] parts = line.split(" ");
+                if (parts.length != 3) continue; // обрезанная строка (сбой при записи)
+                try {
+                    queue.add(new Payout(UUID.fromString(parts[0]), parts[1], Integer.parseInt(parts[2])));
+                    restored++;
+                } catch (IllegalArgumentException ignored) {
+                    // повреждённая строка
+                }
+            }
+            Files.delete(file);
+            if (restored > 0) logger.info("Невыданных наград с прошлого запуска: " + restored + ", выдаются.");
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Не удалось прочитать невыданные награды", ex);
+        }
+    }
+
+    private int drain(int budget) {
+        if (queue.isEmpty()) return 0;
+        RewardSink target = sink();
+        if (target == null) {
+            if (mode.equals("coinsengine") && Bukkit.getPluginManager().getPlugin("CoinsEngine") == null) hold();
+            return 0;
+        }
+        // Награды одного игрока из очереди складываются в одно зачисление; budget — число зачислений.
+        // Очередь разбирает только глобальный поток, поэтому peek() и poll() видят одну запись.
+        Map<UUID, Payout> batch = new LinkedHashMap<>();
+        int paid = 0;
+        for (Payout next; (next = queue.peek()) != null; ) {
+            if (batch.size() >= budget && !batch.containsKey(next.uuid())) break;
+            queue.poll();
+            batch.merge(next.uuid(), next, RewardQueue::merge);
+            paid++;
+        }
+        for (Payout payout : batch.values()) {
+            Player p = Bukkit.getPlayer(payout.uuid());
+            if (p == null) {
+                if (target == commandSink) commandSink.pay(payout.name(), payout.amount());
+                else hold(payout);
+                continue;
+            }
+            target.pay(p, payout.amount());
+            if (title != null) p.sendMessage(titleFor(payout.amount()));
+        }
+        return paid;
+    }
+
+    private Component titleFor(int amount) {
+        return LegacyComponentSerializer.legacyAmpersand().deserialize(title.replace("%amount%", String.valueOf(amount)));
+    }
+
+    /**
+     * reward-mode: coinsengine, а CoinsEngine не установлен — выдать нечем до перезапуска.
+     * Очередь складывается по игрокам, чтобы не расти с каждой наградой; при выключении
+     * отложенное сохраняется в pending-rewards.txt.
+     */
+    private void hold() {
+        if (!missingWarned) {
+            missingWarned = true;
+            logger.warning("reward-mode: coinsengine, но CoinsEngine не найден — награды не выдаются, "
+                + "а копятся до перезапуска с CoinsEngine. Установите его или смените reward-mode.");
+        }
+        for (Payout payout; (payout = queue.poll()) != null; ) {
+            held.merge(payout.uuid(), payout, RewardQueue::merge);
+        }
+    }
+
+    /** Вышедший игрок при выплате через API; если он успел вернуться — сразу обратно в очередь */
+    private void hold(Payout payout) {
+        held.merge(payout.uuid(), payout, RewardQueue::merge);
+        if (Bukkit.getPlayer(payout.uuid()) != null) release(payout.uuid());
+    }
+
+    private static Payout merge(Payout a, Payout b) {
+        return new Payout(a.uuid(), b.name(), a.amount() + b.amount());
+    }
+
+    /**
+     * Способ выплаты выбирается лениво: плагин грузится до CoinsEngine (loadbefore),
+     * поэтому при включении его API ещё недоступен. null — CoinsEngine ещё не включён, ждём.
+     */
+    private RewardSink sink() {
+        if (direct && !Bukkit.getPluginManager().isPluginEnabled("CoinsEngine")) return null;
+        if (sink != null) return sink;
+        if (mode.equals("command")) return sink = commandSink;
+        var coins = Bukkit.getPluginManager().getPlugin("CoinsEngine");
+        if (coins == null) {
+            if (mode.equals("coinsengine")) return null;
+            logger.info("CoinsEngine не найден, награды выдаются командой reward-command.");
+            return sink = commandSink;
+        }
+        if (!coins.isEnabled()) return null;
+        RewardSink direct = CoinsEngineRewardSink.create(currencyId);
+        if (direct == null) {
+            logger.warning("Валюта '" + currencyId + "' не найдена в CoinsEngine, награды выдаются командой.");
+            return sink = commandSink;
+        }
+        this.direct = true;
+        return sink = direct;
+    }
+}
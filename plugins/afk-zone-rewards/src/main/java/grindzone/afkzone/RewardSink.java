@@ -0,0 +1,9 @@
+package grindzone.afkzone;
+
+import org.bukkit.entity.Player;
+
+/** Способ зачисления AFK-монет */
+public interface RewardSink {
+
+    void pay(Player p, int amount);
+}
@@ -0,0 +1,74 @@
+package grindzone.afkzone;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Тиры наград из config.yml (tiers): имя, право и интервал в секундах.
+ * Права проверяются сверху вниз; последний тир — для игроков без прав.
+ */
+public final class TierTable {
+
+    /** Старые значения (Legend 5м, Premium 10м, VIP 15м, Default 20м), если секции tiers нет */
+    private static final TierTable DEFAULTS = new TierTable(
+        new String[]{"legend", "premium", "vip", "default"},
+        new String[]{"axafkzone.tier.legend", "axafkzone.tier.premium", "axafkzone.tier.vip", "axafkzone.tier.default"},
+        new int[]{300, 600, 900, 1200}
+    );
+
+    private final String[] names;
+    private final String[] permissions;
+    private final int[] intervals;
+
+    private TierTable(String[] names, String[] permissions, int[] intervals) {
+        this.names = names;
+        this.permissions = permissions;
+        this.intervals = intervals;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String[] names() {
+        return names.clone();
+    }
+
+    public int[] intervals() {
+        return intervals.clone();
+    }
+
+    /** Индекс первого тира, право которого есть у игрока; иначе последний */
+    public int resolve(Player p) {
+        int last = permissions.length - 1;
+        for (int i = 0; i < last; i++) {
+            if (p.hasPermission(permissions[i])) return i;
+        }
+        return last;
+    }
+
+    static TierTable fromConfig(ConfigurationSection section) {
+        if (section == null) return DEFAULTS;
+        List<String> names = new ArrayList<>();
+        List<String> permissions = new ArrayList<>();
+        List<Integer> intervals = new ArrayList<>();
+        for (String name : section.getKeys(false)) {
+            ConfigurationSection tier = section.getConfigurationSection(name);
+            if (tier == null) continue;
+            int interval = tier.getInt("interval");
+            if (interval <= 0) throw new IllegalArgumentException("интервал тира " + name + " должен быть > 0");
+            names.add(name);
+            permissions.add(tier.getString("permission", "axafkzone.tier." + name));
+            intervals.add(interval);
+        }
+        if (names.isEmpty()) return DEFAULTS;
+        return new TierTable(
+            names.toArray(String[]::new),
+            permissions.toArray(String[]::new),
+            intervals.stream().mapToInt(Integer::intValue).toArray()
+        );
+    }
+}
@@ -0,0 +1,109 @@
+package grindzone.afkzone;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * AFK-зона: область мира со своими интервалами наград.
+ * Координаты блочные, границы включительно; bounding box используется индексом по чанкам.
+ */
+public abstract class Zone {
+
+    private final String id;
+    private final String world;
+    private final int[] intervals;
+
+    final int minX, minY, minZ;
+    final int maxX, maxY, maxZ;
+
+    protected Zone(String id, String world, int[] intervals,
+                   int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        this.id = id;
+        this.world = world;
+        this.intervals = intervals;
+        this.minX = Math.min(minX, maxX);
+        this.minY = Math.min(minY, maxY);
+        this.minZ = Math.min(minZ, maxZ);
+        this.maxX = Math.max(minX, maxX);
+        this.maxY = Math.max(minY, maxY);
+        this.maxZ = Math.max(minZ, maxZ);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getWorld() {
+        return world;
+    }
+
+    /** Интервал награды в секундах для тира (индекс в таблице тиров) */
+    public int getIntervalSeconds(int tier) {
+        return intervals[tier];
+    }
+
+    public int getMaxIntervalSeconds() {
+        int max = 0;
+        for (int sec : intervals) max = Math.max(max, sec);
+        return max;
+    }
+
+    /** Проверка блока; вызывается только для зон из чанка игрока */
+    public abstract boolean contains(int x, int y, int z);
+
+    final boolean inBounds(int x, int y, int z) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+    }
+
+    /**
+     * Зона из секции config.yml (zones.&lt;id&gt;).
+     * type: cuboid (min/max: [x, y, z]) или polygon (points: [[x, z], ...], min-y, max-y).
+     * intervals: &lt;tier&gt;: секунды — переопределяет интервалы по умолчанию.
+     */
+    static Zone fromConfig(String id, ConfigurationSection section, TierTable tiers) {
+        String world = section.getString("world");
+        if (world == null || world.isEmpty()) throw new IllegalArgumentException("не указан world");
+
+        int[] intervals = tiers.intervals();
+        ConfigurationSection own = section.getConfigurationSection("intervals");
+        if (own != null) {
+            String[] tierNames = tiers.names();
+            for (int i = 0; i < tierNames.length; i++) {
+                int sec = own.getInt(tierNames[i], intervals[i]);
+                if (sec <= 0) throw new IllegalArgumentException("интервал " + tierNames[i] + " должен быть > 0");
+                intervals[i] = sec;
+            }
+        }
+
+        String type = section.getString("type", "cuboid");
+        if (type.equalsIgnoreCase("cuboid")) {
+            List<Integer> min = section.getIntegerList("min");
+            List<Integer> max = section.getIntegerList("max");
+            if (min.size() != 3 || max.size() != 3) throw new IllegalArgumentException("min/max должны быть [x, y, z]");
+            return new CuboidZone(id, world, intervals,
+                min.get(0), min.get(1), min.get(2), max.get(0), max.get(1), max.get(2));
+        }
+        if (type.equalsIgnoreCase("polygon")) {
+            List<int[]> points = new ArrayList<>();
+            for (Object o : section.getList("points", List.of())) {
+                if (!(o instanceof List<?> point) || point.size() != 2
+                    || !(point.get(0) instanceof Number px) || !(point.get(1) instanceof Number pz)) {
+                    throw new IllegalArgumentException("точки полигона должны быть [x, z]");
+                }
+                points.add(new int[]{px.intValue(), pz.intValue()});
+            }
+            if (points.size() < 3) throw new IllegalArgumentException("у полигона меньше 3 точек");
+            int[] xs = new int[points.size()];
+            int[] zs = new int[points.size()];
+            for (int i = 0; i < xs.length; i++) {
+                xs[i] = points.get(i)[0];
+                zs[i] = points.get(i)[1];
+            }
+            return new PolygonZone(id, world, intervals, xs, zs,
+                section.getInt("min-y", -64), section.getInt("max-y", 319));
+        }
+        throw new IllegalArgumentException("неизвестный type: " + type);
+    }
+}
@@ -0,0 +1,80 @@
+package grindzone.afkzone;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import org.bukkit.configuration.ConfigurationSection;
+
+/**
+ * Предсобранные тексты таймера. Форматы actionbar/bossbar читаются один раз при загрузке;
+ * строки "M:SS" готовятся сразу для всего диапазона 0..макс. интервал, компоненты —
+ * при первом обращении и дальше берутся из массива. Тик не собирает строк и не парсит цвета.
+ */
+final class ZoneDisplay {
+
+    /** Шагов прогресса BossBar: пакет прогресса уходит только при смене шага */
+    static final int PROGRESS_STEPS = 200;
+
+    private static final LegacyComponentSerializer LEGACY = LegacyComponentSerializer.legacyAmpersand();
+
+    private final boolean actionBarEnabled;
+    private final boolean bossBarEnabled;
+    private final String actionBarFormat;
+    private final String bossBarFormat;
+    private final String[] times;
+    private final Component[] actionBarLabels;
+    private final Component[] bossBarLabels;
+
+    ZoneDisplay(ConfigurationSection config, int maxSeconds) {
+        actionBarEnabled = config.getBoolean("actionbar.enabled", true);
+        bossBarEnabled = config.getBoolean("bossbar.enabled", true);
+        actionBarFormat = config.getString("actionbar.format", "&eДо награды: &a%time%");
+        bossBarFormat = config.getString("bossbar.format", "&a⌚ AFK-зона &7| До награды: &e%time%");
+        times = new String[maxSeconds + 1];
+        for (int left = 0; left <= maxSeconds; left++) {
+            times[left] = format(left);
+        }
+        actionBarLabels = new Component[maxSeconds + 1];
+        bossBarLabels = new Component[maxSeconds + 1];
+    }
+
+    boolean actionBarEnabled() {
+        return actionBarEnabled;
+    }
+
+    boolean bossBarEnabled() {
+        return bossBarEnabled;
+    }
+
+    /** "M:SS" — безопасно из любого потока, массив заполнен в конструкторе */
+    String time(int left) {
+        return left < times.length ? times[left] : format(left);
+    }
+
+    Component actionBar(int left) {
+        return label(actionBarLabels, actionBarFormat, left);
+    }
+
+    Component bossBar(int left) {
+        return label(bossBarLabels, bossBarFormat, left);
+    }
+
+    static int progressStep(int seconds, int interval) {
+        return Math.min(PROGRESS_STEPS, (int) ((long) seconds * PROGRESS_STEPS / interval));
+    }
+
+    private Component label(Component[] cache, String format, int left) {
+        if (left >= cache.length) return LEGACY.deserialize(format.replace("%time%", format(left)));
+        Component c = cache[left];
+        if (c == null) {
+            c = LEGACY.deserialize(format.replace("%time%", times[left]));
+            cache[left] = c;
+        }
+        return c;
+    }
+
+    static String format(int left) {
+        int min = left / 60;
+        int s = left % 60;
+        return min + ":" + (s < 10 ? "0" : "") + s;
+    }
+}
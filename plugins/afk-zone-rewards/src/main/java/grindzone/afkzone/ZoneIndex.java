@@ -0,0 +1,112 @@
+package grindzone.afkzone;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Индекс зон: мир -> чанк -> зоны, пересекающие чанк.
+ * Поиск — один промах по карте для мира/чанка без зон, иначе проверка только зон этого чанка.
+ * Неизменяемый: при перезагрузке конфига строится новый.
+ */
+public final class ZoneIndex {
+
+    private final Map<String, ChunkMap> worlds = new HashMap<>();
+    private final List<Zone> zones;
+
+    public ZoneIndex(Collection<? extends Zone> zones) {
+        this.zones = List.copyOf(zones);
+        for (Zone zone : this.zones) {
+            ChunkMap chunks = worlds.computeIfAbsent(zone.getWorld(), w -> new ChunkMap());
+            for (int cx = zone.minX >> 4; cx <= zone.maxX >> 4; cx++) {
+                for (int cz = zone.minZ >> 4; cz <= zone.maxZ >> 4; cz++) {
+                    chunks.add(chunkKey(cx, cz), zone);
+                }
+            }
+        }
+    }
+
+    public List<Zone> getZones() {
+        return zones;
+    }
+
+    public Zone find(Location loc) {
+        if (loc == null) return null;
+        World world = loc.getWorld();
+        if (world == null) return null;
+        return find(world.getName(), loc.getBlockX(), loc.getBlockY(), loc.getBlockZ());
+    }
+
+    public Zone find(String world, int x, int y, int z) {
+        ChunkMap chunks = worlds.get(world);
+        if (chunks == null) return null;
+        Zone[] candidates = chunks.get(chunkKey(x >> 4, z >> 4));
+        if (candidates == null) return null;
+        for (Zone zone : candidates) {
+            if (zone.contains(x, y, z)) return zone;
+        }
+        return null;
+    }
+
+    static long chunkKey(int cx, int cz) {
+        return ((long) cx << 32) | (cz & 0xFFFFFFFFL);
+    }
+
+    /** Открытая адресация long -> Zone[], без упаковки ключей */
+    private static final class ChunkMap {
+        private long[] keys = new long[16];
+        private Zone[][] values = new Zone[16][];
+        private int size;
+
+        Zone[] get(long key) {
+            int mask = keys.length - 1;
+            for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+                Zone[] v = values[i];
+                if (v == null) return null;
+                if (keys[i] == key) return v;
+            }
+        }
+
+        void add(long key, Zone zone) {
+            if ((size + 1) * 2 > keys.length) resize();
+            int mask = keys.length - 1;
+            int i = mix(key) & mask;
+            while (values[i] != null && keys[i] != key) i = (i + 1) & mask;
+            if (values[i] == null) {
+                keys[i] = key;
+                values[i] = new Zone[]{zone};
+                size++;
+            } else {
+                Zone[] old = values[i];
+                Zone[] grown = Arrays.copyOf(old, old.length + 1);
+                grown[old.length] = zone;
+                values[i] = grown;
+            }
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            Zone[][] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new Zone[oldValues.length * 2][];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldValues[j] == null) continue;
+                int i = mix(oldKeys[j]) & mask;
+                while (values[i] != null) i = (i + 1) & mask;
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+
+        private static int mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
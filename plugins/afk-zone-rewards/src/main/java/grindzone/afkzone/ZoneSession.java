@@ -0,0 +1,47 @@
+package grindzone.afkzone;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import net.kyori.adventure.bossbar.BossBar;
+import org.bukkit.entity.Player;
+
+/**
+ * Игрок, находящийся в AFK-зоне: текущая зона, накопленные секунды, тир и его BossBar.
+ * Поля меняются только в потоке, владеющем игроком; seconds читается ещё и при
+ * контрольной точке прогресса из глобального потока.
+ */
+public final class ZoneSession {
+
+    final Player player;
+    Zone zone;
+    volatile int seconds;
+    /** Время последней обработки (System.nanoTime) и наносекунды, не сложившиеся в секунду */
+    long lastNanos = System.nanoTime();
+    long nanos;
+    /** Счётчик обработок — для редкого обновления интерфейса при высоком MSPT */
+    int visits;
+    /** Повторяющаяся задача обработки в планировщике игрока (ZoneTracker) */
+    volatile ScheduledTask task;
+    /** Индекс тира в TierTable; -1 — не вычислен (сброс при смене прав или перезагрузке) */
+    int tier = -1;
+    BossBar bossBar;
+    /** Что сейчас показано игроку: секунды до награды и шаг прогресса (-1 — ничего) */
+    int shownLeft = -1;
+    int shownStep = -1;
+
+    ZoneSession(Player player, Zone zone) {
+        this.player = player;
+        this.zone = zone;
+    }
+
+    public Player getPlayer() {
+        return player;
+    }
+
+    public Zone getZone() {
+        return zone;
+    }
+
+    public int getSeconds() {
+        return seconds;
+    }
+}
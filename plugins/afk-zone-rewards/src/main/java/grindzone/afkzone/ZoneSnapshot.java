@@ -0,0 +1,9 @@
+package grindzone.afkzone;
+
+/**
+ * Неизменяемый снимок состояния игрока в зоне. Публикуется тиком в ConcurrentHashMap,
+ * поэтому плейсхолдеры (TAB, скорборды — часто из async-потоков) читают его без блокировок
+ * и без обращения к Bukkit.
+ */
+public record ZoneSnapshot(String zone, int seconds, int interval, String timeLeft) {
+}
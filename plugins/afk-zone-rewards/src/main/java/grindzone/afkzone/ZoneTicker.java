@@ -0,0 +1,119 @@
+package grindzone.afkzone;
+
+import net.kyori.adventure.bossbar.BossBar;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Обработка игроков в зоне за один тик: учёт времени, награда, интерфейс, снимок для плейсхолдеров.
+ * Не зависит от планировщика и JavaPlugin — время передаётся снаружи (бенчмарки, симуляции).
+ * Сессия обрабатывается в потоке, владеющем игроком (на Folia — его регион); настройки
+ * меняются из глобального потока, поэтому поля volatile.
+ */
+final class ZoneTicker {
+
+    static final long NANOS_PER_SECOND = 1_000_000_000L;
+    /** Больше этого за одну обработку не засчитывается (зависание сервера, а не AFK) */
+    static final long MAX_STEP_NANOS = 60 * NANOS_PER_SECOND;
+
+    private final RewardQueue rewards;
+    private final Map<UUID, ZoneSnapshot> snapshots = new ConcurrentHashMap<>();
+    private volatile TierTable tiers;
+    private volatile ZoneDisplay display;
+    private volatile int uiDivisor = 1;
+
+    ZoneTicker(RewardQueue rewards) {
+        this.rewards = rewards;
+    }
+
+    void configure(TierTable tiers, ZoneDisplay display) {
+        this.tiers = tiers;
+        this.display = display;
+    }
+
+    int uiDivisor() {
+        return uiDivisor;
+    }
+
+    void setUiDivisor(int uiDivisor) {
+        this.uiDivisor = Math.max(1, uiDivisor);
+    }
+
+    /** Обработать одного игрока; now — System.nanoTime() */
+    void process(ZoneSession session, long now) {
+        session.nanos += Math.min(now - session.lastNanos, MAX_STEP_NANOS);
+        session.lastNanos = now;
+        if (session.nanos < NANOS_PER_SECOND) return;
+        int seconds = session.seconds + (int) (session.nanos / NANOS_PER_SECOND);
+        session.nanos %= NANOS_PER_SECOND;
+
+        int interval = intervalSeconds(session);
+        if (seconds >= interval) {
+            rewards.add(session.player);
+            seconds = Math.min(seconds - interval, interval - 1);
+        }
+        session.seconds = seconds;
+        if (session.visits++ % uiDivisor == 0) updateDisplay(session);
+        publish(session);
+    }
+
+    ZoneSnapshot snapshot(UUID uuid) {
+        return snapshots.get(uuid);
+    }
+
+    void publish(ZoneSession session) {
+        int interval = intervalSeconds(session);
+        String timeLeft = display.time(Math.max(0, interval - session.seconds));
+        snapshots.put(session.player.getUniqueId(), new ZoneSnapshot(session.zone.getId(), session.seconds, interval, timeLeft));
+    }
+
+    /** Игрок покинул зону: снять снимок и BossBar */
+    void leave(ZoneSession session) {
+        snapshots.remove(session.player.getUniqueId());
+        if (session.bossBar != null) {
+            session.player.hideBossBar(session.bossBar);
+            session.bossBar = null;
+        }
+        session.shownLeft = -1;
+        session.shownStep = -1;
+    }
+
+    /** Actionbar и BossBar: пакеты уходят только если показанное значение изменилось */
+    void updateDisplay(ZoneSession session) {
+        int interval = intervalSeconds(session);
+        int left = Math.max(0, interval - session.seconds);
+        int step = ZoneDisplay.progressStep(session.seconds, interval);
+        boolean leftChanged = left != session.shownLeft;
+        session.shownLeft = left;
+
+        if (leftChanged && display.actionBarEnabled()) {
+            session.player.sendActionBar(display.actionBar(left));
+        }
+        if (!display.bossBarEnabled()) {
+            if (session.bossBar != null) {
+                session.player.hideBossBar(session.bossBar);
+                session.bossBar = null;
+            }
+            return;
+        }
+        float progress = (float) step / ZoneDisplay.PROGRESS_STEPS;
+        if (session.bossBar == null) {
+            session.bossBar = BossBar.bossBar(display.bossBar(left), progress, BossBar.Color.GREEN, BossBar.Overlay.NOTCHED_20);
+            session.shownStep = step;
+            session.player.showBossBar(session.bossBar);
+            return;
+        }
+        if (leftChanged) session.bossBar.name(display.bossBar(left));
+        if (step != session.shownStep) {
+            session.shownStep = step;
+            session.bossBar.progress(progress);
+        }
+    }
+
+    int intervalSeconds(ZoneSession session) {
+        if (session.tier < 0) session.tier = tiers.resolve(session.player);
+        return session.zone.getIntervalSeconds(session.tier);
+    }
+}
@@ -0,0 +1,179 @@
+package grindzone.afkzone;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityDismountEvent;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+import org.bukkit.event.vehicle.VehicleMoveEvent;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Кто сейчас в AFK-зоне. Членство обновляется по событиям (смена блока, телепорт,
+ * смена мира, вход/выход), поэтому обрабатываются только игроки внутри зон.
+ * Для пассажиров PlayerMoveEvent не приходит — их ведёт VehicleMoveEvent транспорта.
+ * Каждая сессия — повторяющаяся задача в планировщике игрока (на Folia — в его регионе)
+ * с периодом tick-buckets тиков; сдвиг первого запуска по хэшу UUID размазывает
+ * нагрузку по всем тикам, а не на каждый 20-й.
+ */
+public class ZoneTracker implements Listener {
+
+    private final AFKZoneRewardsPlugin plugin;
+    private final Map<UUID, ZoneSession> sessions = new ConcurrentHashMap<>();
+    private volatile int period = 20;
+
+    public ZoneTracker(AFKZoneRewardsPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    public int bucketCount() {
+        return period;
+    }
+
+    /** Сменить период обработки (reload) — задачи сессий перезапускаются */
+    public void setBucketCount(int count) {
+        if (count == period) return;
+        period = count;
+        for (ZoneSession session : sessions.values()) {
+            cancel(session);
+            schedule(session);
+        }
+    }
+
+    public ZoneSession get(UUID uuid) {
+        return sessions.get(uuid);
+    }
+
+    public Collection<ZoneSession> sessions() {
+        return sessions.values();
+    }
+
+    /** Пересчитать всех онлайн-игроков (включение плагина, перезагрузка зон) — каждого в его потоке */
+    public void refreshAll() {
+        for (Player p : Bukkit.getOnlinePlayers()) {
+            p.getScheduler().run(plugin, task -> update(p, p.getLocation()), null);
+        }
+    }
+
+    /** Перезагрузка настроек: кэш тира и показанный интерфейс сбрасываются в потоке игрока */
+    public void resetCaches() {
+        for (ZoneSession session : sessions.values()) {
+            session.player.getScheduler().run(plugin, task -> {
+                session.tier = -1;
+                session.shownLeft = -1;
+                session.shownStep = -1;
+            }, null);
+        }
+    }
+
+    /** Выключение плагина: прогресс всех игроков в зонах сохраняется */
+    public void clear() {
+        for (ZoneSession session : sessions.values()) {
+            cancel(session);
+            plugin.onLeave(session, true);
+        }
+        sessions.clear();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onMove(PlayerMoveEvent e) {
+        if (!e.hasChangedBlock()) return;
+        update(e.getPlayer(), e.getTo());
+    }
+
+    /** Лодка, вагонетка, лошадь: пассажиры-игроки меняют блок вместе с транспортом */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onVehicleMove(VehicleMoveEvent e) {
+        Location from = e.getFrom();
+        Location to = e.getTo();
+        if (from.getBlockX() == to.getBlockX() && from.getBlockY() == to.getBlockY()
+            && from.getBlockZ() == to.getBlockZ() && from.getWorld() == to.getWorld()) return;
+        for (Entity passenger : e.getVehicle().getPassengers()) {
+            // Пассажир в том же регионе, что и транспорт (на Folia они тикают вместе)
+            if (passenger instanceof Player p) update(p, to);
+        }
+    }
+
+    /** После спешивания игрок стоит уже не на месте транспорта — проверить в следующем тике */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onDismount(EntityDismountEvent e) {
+        if (!(e.getEntity() instanceof Player p)) return;
+        p.getScheduler().run(plugin, task -> update(p, p.getLocation()), null);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onTeleport(PlayerTeleportEvent e) {
+        update(e.getPlayer(), e.getTo());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onRespawn(PlayerRespawnEvent e) {
+        update(e.getPlayer(), e.getRespawnLocation());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldChange(PlayerChangedWorldEvent e) {
+        update(e.getPlayer(), e.getPlayer().getLocation());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onJoin(PlayerJoinEvent e) {
+        plugin.onJoin(e.getPlayer());
+        update(e.getPlayer(), e.getPlayer().getLocation());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent e) {
+        ZoneSession session = sessions.remove(e.getPlayer().getUniqueId());
+        if (session == null) return;
+        cancel(session);
+        plugin.onLeave(session, true);
+    }
+
+    private void update(Player p, Location to) {
+        Zone zone = plugin.getZones().find(to);
+        UUID uuid = p.getUniqueId();
+        if (zone == null) {
+            ZoneSession session = sessions.remove(uuid);
+            if (session == null) return;
+            cancel(session);
+            plugin.onLeave(session, false);
+            return;
+        }
+        ZoneSession session = sessions.get(uuid);
+        if (session == null) {
+            session = new ZoneSession(p, zone);
+            session.lastNanos = plugin.now();
+            sessions.put(uuid, session);
+            plugin.onEnter(session);
+            schedule(session);
+        } else {
+            session.zone = zone;
+        }
+    }
+
+    private void schedule(ZoneSession session) {
+        int delay = 1 + Math.floorMod(session.player.getUniqueId().hashCode(), period);
+        session.task = session.player.getScheduler().runAtFixedRate(plugin, task -> plugin.process(session), null, delay, period);
+    }
+
+    private static void cancel(ZoneSession session) {
+        if (session.task != null) {
+            session.task.cancel();
+            session.task = null;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package grindzone.afkzone;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Взаимное скрытие игроков в AFK-зоне (visibility-culling): толпа AFK-игроков не видит
+ * друг друга, и сервер не отслеживает для них n² пар сущностей (движение, экипировка,
+ * метаданные). Меняется только при входе и выходе из зоны — O(n) вызовов на событие.
+ * Игрок с правом exempt-permission видит всех (модераторы); сам он от других скрыт, как все.
+ * hidePlayer убирает игрока и из списка TAB у смотрящего — это описано в config.yml.
+ * Обзор игрока меняется в его потоке: свой — сразу, чужие — через их планировщик.
+ */
+final class ZoneVisibility {
+
+    private record Member(Player player, boolean exempt) {}
+
+    private final Plugin plugin;
+    private final Map<UUID, Member> members = new ConcurrentHashMap<>();
+    private volatile boolean enabled;
+    private volatile String exemptPermission = "afkzonerewards.seeall";
+
+    ZoneVisibility(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /** Настройки из секции visibility-culling; true — режим только что включён */
+    boolean configure(ConfigurationSection section) {
+        boolean was = enabled;
+        enabled = section != null && section.getBoolean("enabled", false);
+        if (section != null) exemptPermission = section.getString("exempt-permission", "afkzonerewards.seeall");
+        if (was && !enabled) showAll();
+        return !was && enabled;
+    }
+
+    /** Игрок вошёл в зону; вызывается в его потоке */
+    void enter(Player p) {
+        if (!enabled) return;
+        Member self = new Member(p, p.hasPermission(exemptPermission));
+        if (members.putIfAbsent(p.getUniqueId(), self) != null) return;
+        for (Member other : members.values()) {
+            if (other == self) continue;
+            if (!self.exempt()) p.hidePlayer(plugin, other.player());
+            if (!other.exempt()) other.player().getScheduler().run(plugin, task -> other.player().hidePlayer(plugin, p), null);
+        }
+    }
+
+    /** Игрок вышел из зоны или с сервера; вызывается в его потоке */
+    void leave(Player p) {
+        Member self = members.remove(p.getUniqueId());
+        if (self == null) return;
+        for (Member other : members.values()) {
+            if (!self.exempt()) p.showPlayer(plugin, other.player());
+            if (!other.exempt()) other.player().getScheduler().run(plugin, task -> other.player().showPlayer(plugin, p), null);
+        }
+    }
+
+    int size() {
+        return members.size();
+    }
+
+    /**
+     * Режим выключен (reload) или плагин выключается: всем снова видны все. При выключении
+     * плагина задачи уже не запланировать — обзор меняется сразу.
+     */
+    void showAll() {
+        Member[] all = members.values().toArray(Member[]::new);
+        members.clear();
+        for (Member viewer : all) {
+            if (viewer.exempt()) continue;
+            Runnable show = () -> {
+                for (Member other : all) {
+                    if (other != viewer) viewer.player().showPlayer(plugin, other.player());
+                }
+            };
+            if (plugin.isEnabled()) {
+                viewer.player().getScheduler().run(plugin, task -> show.run(), null);
+            } else {
+                show.run();
+            }
+        }
+    }
+}
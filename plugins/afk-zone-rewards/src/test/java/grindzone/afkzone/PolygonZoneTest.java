@@ -0,0 +1,58 @@
+package grindzone.afkzone;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PolygonZoneTest {
+
+    private static final int[] INTERVALS = {60};
+
+    @Test
+    void edgeAndVertexBlocksAreInside() {
+        PolygonZone triangle = polygon(new int[]{0, 10, 0}, new int[]{0, 0, 10});
+
+        assertTrue(triangle.contains(0, 64, 0), "вершина");
+        assertTrue(triangle.contains(10, 64, 0), "вершина");
+        assertTrue(triangle.contains(0, 64, 10), "вершина");
+        assertTrue(triangle.contains(5, 64, 0), "горизонтальное ребро");
+        assertTrue(triangle.contains(0, 64, 5), "вертикальное ребро");
+        assertTrue(triangle.contains(5, 64, 5), "наклонное ребро");
+        assertTrue(triangle.contains(3, 64, 3));
+        assertFalse(triangle.contains(6, 64, 5), "за наклонным ребром");
+        assertFalse(triangle.contains(10, 64, 10), "угол bounding box вне треугольника");
+    }
+
+    @Test
+    void concavePolygonExcludesNotch() {
+        // Буква U: вырез x 5..7 от z = 5 до верхнего края
+        PolygonZone u = polygon(
+            new int[]{0, 12, 12, 8, 8, 4, 4, 0},
+            new int[]{0, 0, 12, 12, 4, 4, 12, 12});
+
+        assertTrue(u.contains(6, 64, 2), "основание");
+        assertTrue(u.contains(2, 64, 10), "левая стойка");
+        assertTrue(u.contains(10, 64, 10), "правая стойка");
+        assertTrue(u.contains(8, 64, 4), "внутренняя вершина");
+        assertTrue(u.contains(6, 64, 4), "дно выреза — ребро");
+        assertTrue(u.contains(4, 64, 8), "стенка выреза — ребро");
+        assertFalse(u.contains(6, 64, 5), "вырез");
+        assertFalse(u.contains(6, 64, 12), "вырез у верхнего края");
+        assertFalse(u.contains(5, 64, 11), "вырез у стенки");
+    }
+
+    @Test
+    void heightRangeIsInclusive() {
+        PolygonZone square = polygon(new int[]{-5, 5, 5, -5}, new int[]{-5, -5, 5, 5});
+
+        assertTrue(square.contains(0, 60, 0));
+        assertTrue(square.contains(0, 70, 0));
+        assertFalse(square.contains(0, 59, 0));
+        assertFalse(square.contains(0, 71, 0));
+    }
+
+    private static PolygonZone polygon(int[] xs, int[] zs) {
+        return new PolygonZone("poly", "world", INTERVALS, xs, zs, 60, 70);
+    }
+}
@@ -0,0 +1,75 @@
+package grindzone.afkzone;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProgressJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void tornTailIsCutBeforeAppend() throws IOException {
+        Path file = dir.resolve("progress.journal");
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        UUID c = UUID.randomUUID();
+
+        ProgressJournal journal = new ProgressJournal(file);
+        journal.load();
+        journal.append(a, 100, 1);
+        journal.append(b, 200, 2);
+        journal.flush();
+
+        // Сбой посреди записи: на диске осталась часть следующей записи
+        Files.write(file, new byte[ProgressJournal.RECORD_SIZE / 2], StandardOpenOption.APPEND);
+
+        journal = new ProgressJournal(file);
+        assertEquals(2, journal.load().size());
+        assertEquals(2L * ProgressJournal.RECORD_SIZE, Files.size(file));
+
+        journal.append(c, 300, 3);
+        journal.append(a, 150, 4);
+        journal.flush();
+
+        Map<UUID, ProgressJournal.Entry> loaded = byUuid(new ProgressJournal(file).load());
+        assertEquals(3, loaded.size());
+        assertEquals(new ProgressJournal.Entry(a, 150, 4), loaded.get(a));
+        assertEquals(new ProgressJournal.Entry(b, 200, 2), loaded.get(b));
+        assertEquals(new ProgressJournal.Entry(c, 300, 3), loaded.get(c));
+        assertEquals(4L * ProgressJournal.RECORD_SIZE, Files.size(file));
+    }
+
+    @Test
+    void removedEntriesStayRemovedAfterReload() throws IOException {
+        Path file = dir.resolve("progress.journal");
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+
+        ProgressJournal journal = new ProgressJournal(file);
+        journal.load();
+        journal.append(a, 10, 1);
+        journal.append(b, 20, 1);
+        journal.remove(a, 2);
+        journal.flush();
+
+        List<ProgressJournal.Entry> loaded = new ProgressJournal(file).load();
+        assertEquals(List.of(new ProgressJournal.Entry(b, 20, 1)), loaded);
+    }
+
+    private static Map<UUID, ProgressJournal.Entry> byUuid(List<ProgressJournal.Entry> entries) {
+        return entries.stream().collect(Collectors.toMap(ProgressJournal.Entry::uuid, Function.identity()));
+    }
+}
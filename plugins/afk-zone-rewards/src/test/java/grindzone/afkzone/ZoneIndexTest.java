@@ -0,0 +1,78 @@
+package grindzone.afkzone;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ZoneIndexTest {
+
+    private static final int[] INTERVALS = {60};
+
+    @Test
+    void cuboidBoundsAreInclusive() {
+        // Углы заданы в обратном порядке — зона нормализует их
+        CuboidZone zone = new CuboidZone("c", "world", INTERVALS, 10, 70, 5, -3, 64, -5);
+
+        assertTrue(zone.contains(-3, 64, -5));
+        assertTrue(zone.contains(10, 70, 5));
+        assertFalse(zone.contains(-4, 64, -5));
+        assertFalse(zone.contains(11, 70, 5));
+        assertFalse(zone.contains(0, 63, 0));
+        assertFalse(zone.contains(0, 71, 0));
+        assertFalse(zone.contains(0, 64, 6));
+    }
+
+    @Test
+    void negativeCoordinatesAcrossChunkBoundaries() {
+        // x -20..-1 и z -17..15: чанки x -2..-1, z -2..0
+        CuboidZone zone = new CuboidZone("neg", "world", INTERVALS, -20, 0, -17, -1, 10, 15);
+        ZoneIndex index = new ZoneIndex(List.of(zone));
+
+        assertSame(zone, index.find("world", -20, 5, -17));
+        assertSame(zone, index.find("world", -17, 5, -16), "чанк x -2 / -1");
+        assertSame(zone, index.find("world", -16, 5, -1));
+        assertSame(zone, index.find("world", -1, 5, 0), "чанк z -1 / 0");
+        assertSame(zone, index.find("world", -1, 5, 15));
+        assertNull(index.find("world", 0, 5, 0), "x = 0 — уже снаружи");
+        assertNull(index.find("world", -21, 5, 0));
+        assertNull(index.find("world", -10, 5, -18));
+        assertNull(index.find("world", -10, 5, 16));
+        assertNull(index.find("world_nether", -10, 5, 0));
+    }
+
+    @Test
+    void manyChunksSurviveChunkMapResize() {
+        // Больше 8 чанков: карта чанков растёт 16 -> 32 -> 64 -> 128 ячеек
+        List<Zone> zones = new ArrayList<>();
+        for (int cx = -3; cx <= 3; cx++) {
+            for (int cz = -3; cz <= 3; cz++) {
+                int x = cx * 16 + 4;
+                int z = cz * 16 + 4;
+                zones.add(new CuboidZone(cx + ":" + cz, "world", INTERVALS, x, 0, z, x + 7, 10, z + 7));
+            }
+        }
+        // Одна зона на много чанков поверх уже занятых ячеек
+        CuboidZone wide = new CuboidZone("wide", "world", INTERVALS, -200, 50, -200, 199, 60, 199);
+        zones.add(wide);
+        ZoneIndex index = new ZoneIndex(zones);
+
+        for (Zone zone : zones) {
+            if (zone == wide) continue;
+            assertSame(zone, index.find("world", zone.minX, 5, zone.minZ), zone.getId());
+            assertSame(zone, index.find("world", zone.maxX, 5, zone.maxZ), zone.getId());
+            assertNull(index.find("world", zone.maxX + 1, 5, zone.maxZ), zone.getId());
+        }
+        assertSame(wide, index.find("world", -200, 55, -200));
+        assertSame(wide, index.find("world", 199, 55, 199));
+        assertSame(wide, index.find("world", 4, 55, 4), "зоны одного чанка проверяются все");
+        assertNull(index.find("world", 200, 55, 0));
+        assertEquals(zones.size(), index.getZones().size());
+    }
+}
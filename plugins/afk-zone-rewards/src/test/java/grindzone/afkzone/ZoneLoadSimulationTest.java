@@ -0,0 +1,101 @@
+package grindzone.afkzone;
+
+import grindzone.common.LoadReport;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.ServerMock;
+import org.mockbukkit.mockbukkit.entity.PlayerMock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 150 игроков стоят в AFK-зоне несколько интервалов награды. Время в зоне идёт по
+ * подменённым часам (50 мс на тик), поэтому часы игры проходят за секунды.
+ * Инварианты: каждый получил ровно INTERVALS наград, игроки в зоне скрыты друг от друга
+ * (visibility-culling), после выхода не осталось сессий и снимков плейсхолдеров.
+ */
+class ZoneLoadSimulationTest {
+
+    private static final int PLAYERS = 150;
+    private static final int INTERVAL_SECONDS = 60;
+    private static final int INTERVALS = 3;
+    private static final long TICK_NANOS = 50_000_000L;
+    // Зона main из config.yml по умолчанию
+    private static final int MIN_X = 8659467;
+    private static final int MIN_Z = -3812039;
+
+    private ServerMock server;
+    private AFKZoneRewardsPlugin plugin;
+    private long now = 1_000_000_000L;
+
+    @BeforeEach
+    void setUp() {
+        server = MockBukkit.mock();
+        server.addSimpleWorld("world_sandbox");
+        plugin = MockBukkit.load(AFKZoneRewardsPlugin.class);
+        plugin.setClock(() -> now);
+        plugin.getConfig().set("reward-mode", "command");
+        plugin.getConfig().set("reward-command", "say %player% %amount%");
+        plugin.getConfig().set("tiers", null);
+        plugin.getConfig().set("tiers.default.permission", "axafkzone.tier.default");
+        plugin.getConfig().set("tiers.default.interval", INTERVAL_SECONDS);
+        plugin.getConfig().set("metrics.enabled", false);
+        plugin.getConfig().set("visibility-culling.enabled", true);
+        plugin.saveConfig();
+        server.dispatchCommand(server.getConsoleSender(), "afkzr reload");
+    }
+
+    @AfterEach
+    void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    @Test
+    void idlePlayersAcrossRewardIntervals() throws Exception {
+        LoadReport report = new LoadReport("afk-zone-idle");
+        World world = server.getWorld("world_sandbox");
+        List<PlayerMock> players = new ArrayList<>();
+        for (int i = 0; i < PLAYERS; i++) {
+            PlayerMock p = server.addPlayer("afk" + i);
+            p.simulatePlayerMove(new Location(world, MIN_X + 0.5 + i % 50, 70, MIN_Z + 0.5 + i / 50));
+            players.add(p);
+        }
+        report.put("players", PLAYERS);
+        report.put("sessions_after_join", plugin.getTracker().sessions().size());
+        report.check("all_in_zone", plugin.getTracker().sessions().size() == PLAYERS);
+
+        // Последняя обработка каждого игрока — не раньше INTERVALS интервалов после входа
+        int ticks = INTERVALS * INTERVAL_SECONDS * 20 + plugin.getTracker().bucketCount() + 5;
+        for (int t = 0; t < ticks; t++) {
+            now += TICK_NANOS;
+            report.tick(server.getScheduler()::performOneTick);
+        }
+        long paid = plugin.getMetrics().counter("rewards_paid", "").get();
+        report.put("rewards_paid", paid);
+        report.put("zone_process", plugin.getMetrics().histogram("process", "").count());
+        report.check("rewards_exact", paid == (long) PLAYERS * INTERVALS);
+        PlayerMock first = players.get(0);
+        PlayerMock last = players.get(PLAYERS - 1);
+        report.check("occupants_hidden", !first.canSee(last) && !last.canSee(first));
+
+        for (PlayerMock p : players) {
+            p.disconnect();
+        }
+        boolean snapshotsLeft = false;
+        for (PlayerMock p : players) {
+            snapshotsLeft |= plugin.getSnapshot(p.getUniqueId()) != null;
+        }
+        report.check("no_sessions_after_quit", plugin.getTracker().sessions().isEmpty());
+        report.check("no_snapshots_after_quit", !snapshotsLeft);
+
+        report.write();
+        assertTrue(report.passed(), report.failures());
+    }
+}
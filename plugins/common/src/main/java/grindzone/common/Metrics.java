@@ -0,0 +1,202 @@
+package grindzone.common;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Метрики плагина: гистограммы задержек обработчиков и счётчики событий.
+ * Запись — только атомарные инкременты в заранее созданных массивах, без блокировок
+ * и аллокаций; чтение (команда, файл Prometheus) собирает снимок в любом потоке.
+ * Один исходник в plugins/common на все плагины; в jar каждого компилируется своя копия.
+ */
+public final class Metrics {
+
+    /**
+     * Гистограмма в наносекундах с логарифмическими корзинами (как HdrHistogram):
+     * до 16 нс — точно, дальше 8 корзин на каждую степень двойки (точность ~12%).
+     */
+    public static final class Histogram {
+
+        private static final int LINEAR = 16;
+        private static final int SUB_BITS = 3;
+        private static final int SUB = 1 << SUB_BITS;
+        private static final int SIZE = LINEAR + (63 - 4) * SUB;
+
+        private final String name;
+        private final String help;
+        private final AtomicLongArray buckets = new AtomicLongArray(SIZE);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        private Histogram(String name, String help) {
+            this.name = name;
+            this.help = help;
+        }
+
+        /** Засечь начало: long start = System.nanoTime(); ... h.recordSince(start) */
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        public void record(long nanos) {
+            if (nanos < 0) nanos = 0;
+            buckets.incrementAndGet(index(nanos));
+            count.incrementAndGet();
+            sum.addAndGet(nanos);
+            long current;
+            while (nanos > (current = max.get()) && !max.compareAndSet(current, nanos)) {
+                // повтор до успеха
+            }
+        }
+
+        public long count() {
+            return count.get();
+        }
+
+        public long max() {
+            return max.get();
+        }
+
+        public double mean() {
+            long n = count.get();
+            return n == 0 ? 0 : (double) sum.get() / n;
+        }
+
+        /** Верхняя граница корзины, в которую попадает квантиль q (0..1), нс */
+        public long quantile(double q) {
+            long total = 0;
+            long[] snapshot = new long[SIZE];
+            for (int i = 0; i < SIZE; i++) total += snapshot[i] = buckets.get(i);
+            if (total == 0) return 0;
+            long target = Math.max(1, (long) Math.ceil(q * total));
+            long seen = 0;
+            for (int i = 0; i < SIZE; i++) {
+                seen += snapshot[i];
+                if (seen >= target) return Math.min(upperBound(i), max.get());
+            }
+            return max.get();
+        }
+
+        static int index(long v) {
+            if (v < LINEAR) return (int) v;
+            int exp = 63 - Long.numberOfLeadingZeros(v);
+            int sub = (int) (v >>> (exp - SUB_BITS)) & (SUB - 1);
+            return LINEAR + (exp - 4) * SUB + sub;
+        }
+
+        static long upperBound(int index) {
+            if (index < LINEAR) return index;
+            int exp = (index - LINEAR) / SUB + 4;
+            int sub = (index - LINEAR) % SUB;
+            long width = 1L << (exp - SUB_BITS);
+            return (SUB + sub) * width + width - 1;
+        }
+    }
+
+    public static final class Counter {
+
+        private final String name;
+        private final String help;
+        private final AtomicLong value = new AtomicLong();
+
+        private Counter(String name, String help) {
+            this.name = name;
+            this.help = help;
+        }
+
+        public void increment() {
+            value.incrementAndGet();
+        }
+
+        public void add(long delta) {
+            value.addAndGet(delta);
+        }
+
+        public long get() {
+            return value.get();
+        }
+    }
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final String prefix;
+    private final Map<String, Histogram> histograms = new LinkedHashMap<>();
+    private final Map<String, Counter> counters = new LinkedHashMap<>();
+
+    /** prefix — префикс имён в Prometheus, например "afkzone" */
+    public Metrics(String prefix) {
+        this.prefix = prefix;
+    }
+
+    /** Создаётся при включении плагина; на горячем пути держать ссылку, а не искать по имени */
+    public synchronized Histogram histogram(String name, String help) {
+        return histograms.computeIfAbsent(name, n -> new Histogram(n, help));
+    }
+
+    public synchronized Counter counter(String name, String help) {
+        return counters.computeIfAbsent(name, n -> new Counter(n, help));
+    }
+
+    /** Строки для админ-команды */
+    public synchronized List<String> summary() {
+        List<String> lines = new ArrayList<>();
+        for (Histogram h : histograms.values()) {
+            lines.add(String.format(Locale.ROOT, "§e%s§7: n=%d, p50=%s, p99=%s, max=%s",
+                h.name, h.count(), micros(h.quantile(0.5)), micros(h.quantile(0.99)), micros(h.max())));
+        }
+        for (Counter c : counters.values()) {
+            lines.add("§e" + c.name + "§7: " + c.get());
+        }
+        return lines;
+    }
+
+    /** Текстовый формат Prometheus: гистограммы — summary в секундах, счётчики — _total */
+    public synchronized String prometheus() {
+        StringBuilder sb = new StringBuilder();
+        for (Histogram h : histograms.values()) {
+            String metric = prefix + "_" + h.name + "_seconds";
+            sb.append("# HELP ").append(metric).append(' ').append(h.help).append('\n');
+            sb.append("# TYPE ").append(metric).append(" summary\n");
+            for (double q : QUANTILES) {
+                sb.append(metric).append("{quantile=\"").append(q).append("\"} ").append(seconds(h.quantile(q))).append('\n');
+            }
+            sb.append(metric).append("_sum ").append(seconds(h.sum.get())).append('\n');
+            sb.append(metric).append("_count ").append(h.count()).append('\n');
+        }
+        for (Counter c : counters.values()) {
+            String metric = prefix + "_" + c.name + "_total";
+            sb.append("# HELP ").append(metric).append(' ').append(c.help).append('\n');
+            sb.append("# TYPE ").append(metric).append(" counter\n");
+            sb.append(metric).append(' ').append(c.get()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /** Записать файл атомарно (временный + замена), чтобы node exporter не прочитал его наполовину */
+    public void writeTo(Path file) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) Files.createDirectories(dir);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(tmp, prometheus(), StandardCharsets.UTF_8);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+
+    private static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.1fµs", nanos / 1e3);
+    }
+}
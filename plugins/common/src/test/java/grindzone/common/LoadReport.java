@@ -0,0 +1,114 @@
+package grindzone.common;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Отчёт симуляции нагрузки: время и аллокации каждого тика, счётчики и инварианты.
+ * Пишется в JSON (каталог loadsim.dir, по умолчанию build/load-sim), чтобы сравнивать
+ * прогоны между коммитами. Аллокации — только потока, который крутит тики (синхронные
+ * задачи MockBukkit выполняются в нём же); асинхронные задачи сюда не попадают.
+ * Общий для симуляций всех плагинов (plugins/common/src/test).
+ */
+public final class LoadReport {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final String scenario;
+    private final Metrics metrics = new Metrics("loadsim");
+    private final Metrics.Histogram tickTime = metrics.histogram("tick", "Время тика");
+    private final Metrics.Histogram tickAlloc = metrics.histogram("tick_alloc", "Аллокации за тик");
+    private final Map<String, Object> values = new LinkedHashMap<>();
+    private final Map<String, Boolean> invariants = new LinkedHashMap<>();
+    private long allocated;
+
+    public LoadReport(String scenario) {
+        this.scenario = scenario;
+    }
+
+    /** Выполнить один тик с замером времени и аллокаций */
+    public void tick(Runnable work) {
+        long bytes = THREADS.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        work.run();
+        tickTime.recordSince(start);
+        long delta = THREADS.getCurrentThreadAllocatedBytes() - bytes;
+        tickAlloc.record(delta);
+        allocated += delta;
+    }
+
+    public void put(String key, Object value) {
+        values.put(key, value);
+    }
+
+    /** Записать инвариант; проверка теста — после записи отчёта, чтобы провал тоже попал в JSON */
+    public void check(String name, boolean ok) {
+        invariants.put(name, ok);
+    }
+
+    public boolean passed() {
+        return !invariants.containsValue(false);
+    }
+
+    public String failures() {
+        StringJoiner failed = new StringJoiner(", ", scenario + ": нарушены инварианты ", "");
+        invariants.forEach((name, ok) -> {
+            if (!ok) failed.add(name);
+        });
+        return failed.toString();
+    }
+
+    public Path write() throws IOException {
+        Path dir = Path.of(System.getProperty("loadsim.dir", "build/load-sim"));
+        Files.createDirectories(dir);
+        Path file = dir.resolve(scenario + ".json");
+        Files.writeString(file, toJson(), StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private String toJson() {
+        StringBuilder sb = new StringBuilder("{\n");
+        field(sb, "scenario", scenario);
+        field(sb, "commit", System.getProperty("loadsim.commit", "unknown"));
+        field(sb, "java", System.getProperty("java.version"));
+        field(sb, "time", Instant.now().toString());
+        field(sb, "ticks", tickTime.count());
+        sb.append("  \"tick_ns\": ").append(histogram(tickTime)).append(",\n");
+        sb.append("  \"tick_alloc_bytes\": ").append(histogram(tickAlloc)).append(",\n");
+        field(sb, "alloc_bytes_total", allocated);
+        sb.append("  \"values\": ").append(object(values)).append(",\n");
+        sb.append("  \"invariants\": ").append(object(invariants)).append("\n}\n");
+        return sb.toString();
+    }
+
+    private static String histogram(Metrics.Histogram h) {
+        return String.format(java.util.Locale.ROOT, "{\"p50\": %d, \"p90\": %d, \"p99\": %d, \"max\": %d, \"mean\": %.1f}",
+            h.quantile(0.5), h.quantile(0.9), h.quantile(0.99), h.max(), h.mean());
+    }
+
+    private static String object(Map<String, ?> map) {
+        StringJoiner json = new StringJoiner(", ", "{", "}");
+        map.forEach((key, value) -> json.add(quote(key) + ": " + value(value)));
+        return json.toString();
+    }
+
+    private static void field(StringBuilder sb, String key, Object value) {
+        sb.append("  ").append(quote(key)).append(": ").append(value(value)).append(",\n");
+    }
+
+    private static String value(Object value) {
+        return value instanceof Number || value instanceof Boolean ? String.valueOf(value) : quote(String.valueOf(value));
+    }
+
+    private static String quote(String s) {
+        return '"' + s.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+}
@@ -0,0 +1,9 @@
+package grindzone.lobby;
+
+/** Результат опроса бэкенда; checkedAt — монотонное время в мс */
+record BackendStatus(boolean online, int players, int maxPlayers, long checkedAt) {
+
+    boolean isFull() {
+        return online && maxPlayers > 0 && players >= maxPlayers;
+    }
+}
@@ -0,0 +1,155 @@
+package grindzone.lobby;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Кулдауны игроков: UUID → момент окончания (мс, монотонное время) без упаковки в Long.
+ * Открытая адресация с линейным пробированием, удаление сдвигом без «надгробий».
+ * Истечение — хешированное колесо таймеров: ключ лежит в ячейке своего тика окончания,
+ * expire() обходит только наступившие ячейки, поэтому стоимость O(1) на запись.
+ * Методы синхронизированы: порталы срабатывают в регионах игроков (Folia), истечение —
+ * в глобальном потоке; блокировка почти всегда без конкуренции.
+ */
+final class CooldownMap {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+    static final int WHEEL_SLOTS = 64;
+
+    private final long tickMillis;
+    private long[] msb;
+    private long[] lsb;
+    private long[] until;
+    private int mask;
+    private int size;
+
+    /** Ячейки колеса: пары (msb, lsb) подряд */
+    private final long[][] wheel = new long[WHEEL_SLOTS][];
+    private final int[] wheelSize = new int[WHEEL_SLOTS];
+    /** Подменяет обрабатываемую ячейку, чтобы перенос ключа в неё же не затёр необработанные */
+    private long[] spare = new long[8];
+    private long wheelTick = Long.MIN_VALUE;
+
+    /** tickMillis — шаг колеса (точность истечения) */
+    CooldownMap(long tickMillis) {
+        this.tickMillis = Math.max(1, tickMillis);
+        allocate(64);
+        for (int i = 0; i < WHEEL_SLOTS; i++) wheel[i] = new long[8];
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /** true и кулдаун на cooldownMillis, если прошлый истёк; false — игрок ещё на кулдауне */
+    synchronized boolean tryAcquire(UUID uuid, long now, long cooldownMillis) {
+        long m = uuid.getMostSignificantBits();
+        long l = uuid.getLeastSignificantBits();
+        int i = find(m, l);
+        if (i >= 0 && until[i] > now) return false;
+        long end = now + cooldownMillis;
+        if (i >= 0) {
+            until[i] = end;
+            return true;
+        }
+        if (size + 1 > (mask + 1) * 3 / 4) resize((mask + 1) * 2);
+        insert(m, l, end);
+        size++;
+        schedule(m, l, end);
+        return true;
+    }
+
+    synchronized void remove(UUID uuid) {
+        int i = find(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        if (i >= 0) delete(i);
+    }
+
+    /** Удалить истёкшие записи; вызывается периодически */
+    synchronized void expire(long now) {
+        long target = Math.floorDiv(now, tickMillis);
+        if (wheelTick == Long.MIN_VALUE || target - wheelTick > WHEEL_SLOTS) wheelTick = target - WHEEL_SLOTS;
+        while (wheelTick < target) {
+            wheelTick++;
+            int slot = (int) (wheelTick & (WHEEL_SLOTS - 1));
+            int n = wheelSize[slot];
+            if (n == 0) continue;
+            long[] keys = wheel[slot];
+            wheel[slot] = spare;
+            wheelSize[slot] = 0;
+            for (int k = 0; k < n; k += 2) {
+                int i = find(keys[k], keys[k + 1]);
+                if (i < 0) continue; // запись уже удалена (выход игрока)
+                if (until[i] <= now) {
+                    delete(i);
+                } else {
+                    schedule(keys[k], keys[k + 1], until[i]);
+                }
+            }
+            spare = keys;
+        }
+    }
+
+    private void schedule(long m, long l, long end) {
+        long tick = Math.floorDiv(end, tickMillis) + 1;
+        if (wheelTick != Long.MIN_VALUE && tick <= wheelTick) tick = wheelTick + 1;
+        int slot = (int) (tick & (WHEEL_SLOTS - 1));
+        long[] keys = wheel[slot];
+        int n = wheelSize[slot];
+        if (n + 2 > keys.length) wheel[slot] = keys = Arrays.copyOf(keys, keys.length * 2);
+        keys[n] = m;
+        keys[n + 1] = l;
+        wheelSize[slot] = n + 2;
+    }
+
+    private int find(long m, long l) {
+        for (int i = hash(m, l) & mask; until[i] != EMPTY; i = (i + 1) & mask) {
+            if (msb[i] == m && lsb[i] == l) return i;
+        }
+        return -1;
+    }
+
+    private void insert(long m, long l, long end) {
+        int i = hash(m, l) & mask;
+        while (until[i] != EMPTY) i = (i + 1) & mask;
+        msb[i] = m;
+        lsb[i] = l;
+        until[i] = end;
+    }
+
+    /** Удаление со сдвигом следующих записей цепочки на освободившееся место */
+    private void delete(int i) {
+        size--;
+        int hole = i;
+        for (int j = (i + 1) & mask; until[j] != EMPTY; j = (j + 1) & mask) {
+            int home = hash(msb[j], lsb[j]) & mask;
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                msb[hole] = msb[j];
+                lsb[hole] = lsb[j];
+                until[hole] = until[j];
+                hole = j;
+            }
+        }
+        until[hole] = EMPTY;
+    }
+
+    private void resize(int capacity) {
+        long[] oldM = msb, oldL = lsb, oldU = until;
+        allocate(capacity);
+        for (int i = 0; i < oldU.length; i++) {
+            if (oldU[i] != EMPTY) insert(oldM[i], oldL[i], oldU[i]);
+        }
+    }
+
+    private void allocate(int capacity) {
+        msb = new long[capacity];
+        lsb = new long[capacity];
+        until = new long[capacity];
+        Arrays.fill(until, EMPTY);
+        mask = capacity - 1;
+    }
+
+    static int hash(long m, long l) {
+        long h = (m ^ l) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -1,5 +1,6 @@
 package grindzone.lobby;
 
+import grindzone.common.Metrics;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Location;
@@ -8,7 +9,6 @@ import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.NamespacedKey;
-import org.bukkit.World;
 import org.bukkit.entity.Player;
 import org.bukkit.entity.Villager;
 import org.bukkit.event.EventHandler;
@@ -20,6 +20,7 @@ import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.event.player.PlayerInteractEntityEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerPortalEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
@@ -31,41 +32,92 @@ import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
 import net.kyori.adventure.text.format.TextDecoration;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 public class LobbySelectorPlugin extends JavaPlugin implements Listener, CommandExecutor {
 
     private static final String MENU_TITLE = "Выбор сервера";
-    private static final String MENU_VILLAGER_TAG = "lobby_menu";
-    private static final double SPAWN_X = 1.5;
-    private static final double SPAWN_Y = 7;
-    private static final double SPAWN_Z = 1.5;
 
     private static final long PORTAL_COOLDOWN_MS = 5000;
 
-    private final Map<UUID, String> pendingServer = new HashMap<>();
-    private final Map<UUID, Long> portalLastTrigger = new HashMap<>();
-    private NamespacedKey menuKey;
+    /** Бэкенд → версия для заголовка меню */
+    private static final Map<String, String> SERVER_NAMES = Map.of("sandbox17", "1.7.10", "sandbox121", "1.21.10");
+
+    private final Metrics metrics = new Metrics("lobby");
+    private final Metrics.Histogram menuClickTime = metrics.histogram("menu_click", "Клик в меню выбора сервера (onMenuClick)");
+    private final Metrics.Histogram portalTime = metrics.histogram("portal", "Вход в портал лобби (onPortalEnter)");
+    private final Metrics.Counter transferCount = metrics.counter("transfers", "Игроки, отправленные на бэкенд");
+    private volatile Path metricsFile;
+
+    /** Кулдаун портала: запись живёт 5 с и удаляется колесом таймеров или при выходе игрока */
+    private final CooldownMap portalCooldowns = new CooldownMap(250);
+    private final TransferQueue transfers = new TransferQueue(this, transferCount);
+    private final StatusPoller status = new StatusPoller(getLogger());
+    private MenuVillagerKeeper villager;
+    private NamespacedKey compassKey;
+    private NamespacedKey serverKey;
 
     @Override
     public void onEnable() {
-        menuKey = new NamespacedKey(this, "menu_villager");
+        compassKey = new NamespacedKey(this, "menu_compass");
+        serverKey = new NamespacedKey(this, "server");
+        villager = new MenuVillagerKeeper(this, new NamespacedKey(this, "menu_villager"), serverKey,
+                metrics.histogram("villager_repair", "Ремонт меню-жителя в регионе спавна"));
+        saveDefaultConfig();
+        transfers.configure(getConfig().getDouble("transfer.connects-per-second", 5),
+                getConfig().getInt("transfer.burst", 5));
+        status.configure(getConfig().getConfigurationSection("status"));
+        getServer().getMessenger().registerOutgoingPluginChannel(this, TransferQueue.CHANNEL);
         getServer().getPluginManager().registerEvents(this, this);
         getCommand("cleanvillagers").setExecutor(this);
-        Bukkit.getScheduler().runTaskLater(this, () -> spawnMenuVillager(false), 40L);
-        Bukkit.getScheduler().runTaskLater(this, () -> spawnMenuVillager(false), 200L);
-        Bukkit.getScheduler().runTaskLater(this, () -> spawnMenuVillager(false), 400L);
+        getCommand("lobbyselector").setExecutor(this);
+        villager.ensure(40L);
+        // Глобальный планировщик: на Paper это основной поток, на Folia — глобальный регион
+        Bukkit.getGlobalRegionScheduler().runAtFixedRate(this, task -> portalCooldowns.expire(monotonicMillis()), 20L, 20L);
+        Bukkit.getGlobalRegionScheduler().runAtFixedRate(this, task -> transfers.tick(), 1L, 1L);
+        long pollSeconds = Math.max(1, getConfig().getInt("status.poll-seconds", 5));
+        Bukkit.getAsyncScheduler().runAtFixedRate(this, task -> status.poll(), 0L, pollSeconds, TimeUnit.SECONDS);
+        String file = getConfig().getString("metrics.file", "metrics.prom");
+        if (getConfig().getBoolean("metrics.enabled", true) && !file.isEmpty()) {
+            metricsFile = getDataFolder().toPath().resolve(file);
+            long metricsSeconds = Math.max(1, getConfig().getInt("metrics.write-seconds", 15));
+            Bukkit.getAsyncScheduler().runAtFixedRate(this, task -> writeMetrics(), metricsSeconds, metricsSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    public void onDisable() {
+        Bukkit.getGlobalRegionScheduler().cancelTasks(this);
+        Bukkit.getAsyncScheduler().cancelTasks(this);
+        writeMetrics();
+    }
+
+    /** Файл в текстовом формате Prometheus для textfile-коллектора node exporter */
+    private void writeMetrics() {
+        Path file = metricsFile;
+        if (file == null) return;
+        try {
+            metrics.writeTo(file);
+        } catch (IOException ex) {
+            getLogger().warning("Не удалось записать метрики в " + file + ": " + ex.getMessage());
+        }
     }
 
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
         if ("cleanvillagers".equals(command.getName())) {
-            spawnMenuVillager(true);
-            sender.sendMessage(ChatColor.GREEN + "Жители очищены, оставлен один меню-житель.");
+            villager.purge();
+            sender.sendMessage(ChatColor.GREEN + "Очистка жителей запущена, останется один меню-житель.");
+            return true;
+        }
+        if ("lobbyselector".equals(command.getName())) {
+            if (args.length != 1 || !args[0].equalsIgnoreCase("metrics")) return false;
+            sender.sendMessage("§6LobbySelector — метрики:");
+            metrics.summary().forEach(sender::sendMessage);
             return true;
         }
         return false;
@@ -73,59 +125,43 @@ public class LobbySelectorPlugin extends JavaPlugin implements Listener, Command
 
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent e) {
-        if ("world_lobby".equals(e.getPlayer().getWorld().getName())) {
-            Bukkit.getScheduler().runTaskLater(this, () -> spawnMenuVillager(false), 20L);
+        if (MenuVillagerKeeper.WORLD.equals(e.getPlayer().getWorld().getName())) {
+            villager.ensure(20L);
         }
     }
 
-    private void spawnMenuVillager() {
-        spawnMenuVillager(false);
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent e) {
+        portalCooldowns.remove(e.getPlayer().getUniqueId());
+        transfers.cancel(e.getPlayer().getUniqueId());
     }
 
-    private void spawnMenuVillager(boolean loadAllChunks) {
-        World w = Bukkit.getWorld("world_lobby");
-        if (w == null) return;
-        int range = loadAllChunks ? 5 : 2;
-        for (int cx = -range; cx <= range; cx++) {
-            for (int cz = -range; cz <= range; cz++) {
-                w.getChunkAt(cx, cz).load(true);
-            }
-        }
-        Location loc = new Location(w, SPAWN_X, SPAWN_Y, SPAWN_Z);
-        Location spawnPoint = w.getSpawnLocation();
-        loc.setDirection(spawnPoint.toVector().subtract(loc.toVector()));
-        List<Villager> all = new ArrayList<>(w.getEntitiesByClass(Villager.class));
-        Villager keep = null;
-        for (Villager v : all) {
-            if (keep == null && isMenuVillager(v)) {
-                keep = v;
-            } else {
-                v.remove();
-            }
-        }
-        if (keep != null) {
-            keep.teleport(loc);
-            keep.setCustomNameVisible(false);
-            keep.customName(Component.empty());
-            return;
-        }
-        w.spawn(loc, Villager.class, vill -> {
-            vill.setAI(false);
-            vill.setInvulnerable(true);
-            vill.setSilent(true);
-            vill.setPersistent(true);
-            vill.setCustomNameVisible(false);
-            vill.customName(Component.empty());
-            vill.getPersistentDataContainer().set(menuKey, PersistentDataType.STRING, MENU_VILLAGER_TAG);
-        });
+    Metrics getMetrics() {
+        return metrics;
     }
 
-    private boolean isMenuVillager(Villager v) {
-        return MENU_VILLAGER_TAG.equals(v.getPersistentDataContainer().get(menuKey, PersistentDataType.STRING));
+    TransferQueue getTransfers() {
+        return transfers;
     }
 
+    CooldownMap getPortalCooldowns() {
+        return portalCooldowns;
+    }
+
+    private static long monotonicMillis() {
+        return System.nanoTime() / 1_000_000L;
+    }
+
+    /**
+     * Компас выдаёт ItemJoin, поэтому метки у него изначально нет: компас с «МЕНЮ» в названии
+     * помечается при первом использовании, дальше проверяется только ключ PDC.
+     */
     private boolean isMenuCompass(ItemStack item) {
         if (item == null || item.getType() != Material.COMPASS) return false;
+        return item.getPersistentDataContainer().has(compassKey) || hasMenuName(item);
+    }
+
+    private static boolean hasMenuName(ItemStack item) {
         ItemMeta meta = item.getItemMeta();
         if (meta == null || !meta.hasDisplayName()) return false;
         String name = net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer.plainText().serialize(meta.displayName());
@@ -135,28 +171,34 @@ public class LobbySelectorPlugin extends JavaPlugin implements Listener, Command
     @EventHandler
     public void onPortalEnter(PlayerPortalEvent e) {
         if (!"world_lobby".equals(e.getFrom().getWorld().getName())) return;
+        long start = System.nanoTime();
+        try {
+            handlePortal(e);
+        } finally {
+            portalTime.recordSince(start);
+        }
+    }
 
+    private void handlePortal(PlayerPortalEvent e) {
         Player p = e.getPlayer();
 
         // End portal → телепорт на 0 7 7
         if (e.getCause() == TeleportCause.END_PORTAL || e.getCause() == TeleportCause.END_GATEWAY) {
             e.setCancelled(true);
             Location dest = new Location(p.getWorld(), 0.5, 7, 7.5, p.getLocation().getYaw(), p.getLocation().getPitch());
-            Bukkit.getScheduler().runTaskLater(this, () -> p.teleport(dest), 2L);
+            p.getScheduler().runDelayed(this, task -> p.teleportAsync(dest), null, 2L);
             return;
         }
 
         // Nether portal → меню режимов
         if (e.getCause() != TeleportCause.NETHER_PORTAL) return;
-        long now = System.currentTimeMillis();
-        if (portalLastTrigger.getOrDefault(p.getUniqueId(), 0L) + PORTAL_COOLDOWN_MS > now) return;
-        portalLastTrigger.put(p.getUniqueId(), now);
+        if (!portalCooldowns.tryAcquire(p.getUniqueId(), monotonicMillis(), PORTAL_COOLDOWN_MS)) return;
         e.setCancelled(true);
         Location exit = new Location(p.getWorld(), 0.5, 7, 8, p.getLocation().getYaw(), p.getLocation().getPitch());
-        Bukkit.getScheduler().runTaskLater(this, () -> {
-            p.teleport(exit);
+        p.getScheduler().runDelayed(this, task -> {
+            p.teleportAsync(exit);
             p.performCommand("menu");
-        }, 2L);
+        }, null, 2L);
     }
 
     @EventHandler
@@ -170,54 +212,98 @@ public class LobbySelectorPlugin extends JavaPlugin implements Listener, Command
         ItemStack item = e.getItem();
         if (!isMenuCompass(item)) return;
         e.setCancelled(true);
+        if (!item.getPersistentDataContainer().has(compassKey)) {
+            item.editMeta(meta -> meta.getPersistentDataContainer().set(compassKey, PersistentDataType.BOOLEAN, true));
+        }
         e.getPlayer().performCommand("menu");
     }
 
+    /**
+     * NPC-жители бэкендов помечаются ключом server (id бэкенда). Старые NPC без метки узнаются
+     * по «1.7.10» / «1.21.10» в имени и помечаются при первом клике.
+     */
     @EventHandler
     public void onVillagerClick(PlayerInteractEntityEvent e) {
-        if (!(e.getRightClicked() instanceof Villager)) return;
-        Villager v = (Villager) e.getRightClicked();
+        if (!(e.getRightClicked() instanceof Villager v)) return;
         Player p = e.getPlayer();
-        if (isMenuVillager(v)) {
+        if (villager.isMenuVillager(v)) {
             e.setCancelled(true);
             p.performCommand("menu");
             return;
         }
-        String name = v.customName() != null
-                ? net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer.plainText().serialize(v.customName())
-                : "";
-        if (name.contains("1.7.10") || name.contains("1,7,10")) {
-            e.setCancelled(true);
-            openServerMenu(p, "sandbox17", "1.7.10");
-        } else if (name.contains("1.21.10") || name.contains("1,21,10")) {
-            e.setCancelled(true);
-            openServerMenu(p, "sandbox121", "1.21.10");
+        String serverId = v.getPersistentDataContainer().get(serverKey, PersistentDataType.STRING);
+        if (serverId == null) {
+            serverId = serverByName(v.customName());
+            if (serverId == null) return;
+            v.getPersistentDataContainer().set(serverKey, PersistentDataType.STRING, serverId);
         }
+        String serverName = SERVER_NAMES.get(serverId);
+        if (serverName == null) return;
+        e.setCancelled(true);
+        openServerMenu(p, serverId, serverName);
+    }
+
+    private static String serverByName(Component customName) {
+        if (customName == null) return null;
+        String name = net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer.plainText().serialize(customName);
+        if (name.contains("1.7.10") || name.contains("1,7,10")) return "sandbox17";
+        if (name.contains("1.21.10") || name.contains("1,21,10")) return "sandbox121";
+        return null;
     }
 
     private void openServerMenu(Player p, String serverId, String serverName) {
-        Inventory inv = Bukkit.createInventory(null, 9, Component.text(MENU_TITLE + " - " + serverName));
-        ItemStack survival = new ItemStack(Material.GRASS_BLOCK);
+        ServerMenuHolder holder = new ServerMenuHolder(serverId);
+        Inventory inv = Bukkit.createInventory(holder, 9, Component.text(MENU_TITLE + " - " + serverName));
+        holder.setInventory(inv);
+        inv.setItem(ServerMenuHolder.SLOT_SURVIVAL, survivalItem(status.get(serverId, monotonicMillis())));
+        p.openInventory(inv);
+    }
+
+    /** Онлайн из кэша опроса; выключенный или заполненный сервер — серый предмет */
+    private static ItemStack survivalItem(BackendStatus backend) {
+        boolean closed = backend != null && (!backend.online() || backend.isFull());
+        ItemStack survival = new ItemStack(closed ? Material.GRAY_STAINED_GLASS_PANE : Material.GRASS_BLOCK);
         ItemMeta survivalMeta = survival.getItemMeta();
-        survivalMeta.displayName(Component.text("Выживание", NamedTextColor.GREEN));
+        survivalMeta.displayName(Component.text("Выживание", closed ? NamedTextColor.GRAY : NamedTextColor.GREEN));
+        Component line;
+        if (backend == null) {
+            line = Component.text("Онлайн: нет данных", NamedTextColor.GRAY);
+        } else if (!backend.online()) {
+            line = Component.text("Сервер недоступен", NamedTextColor.RED);
+        } else {
+            line = Component.text("Онлайн: " + backend.players() + "/" + backend.maxPlayers(),
+                    backend.isFull() ? NamedTextColor.RED : NamedTextColor.GRAY);
+        }
+        survivalMeta.lore(List.of(line.decoration(TextDecoration.ITALIC, false)));
         survival.setItemMeta(survivalMeta);
-        inv.setItem(4, survival);
-        pendingServer.put(p.getUniqueId(), serverId);
-        p.openInventory(inv);
+        return survival;
     }
 
     @EventHandler
     public void onMenuClick(InventoryClickEvent e) {
-        if (!(e.getWhoClicked() instanceof Player)) return;
-        String title = net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer.plainText().serialize(e.getView().title());
-        if (title.contains(MENU_TITLE)) {
-            e.setCancelled(true);
-            Player p = (Player) e.getWhoClicked();
-            String server = pendingServer.remove(p.getUniqueId());
-            if (server != null && e.getCurrentItem() != null && !e.getCurrentItem().getType().isAir()) {
-                p.closeInventory();
-                p.performCommand("server " + server);
-            }
+        if (!(e.getInventory().getHolder(false) instanceof ServerMenuHolder menu)) return;
+        long start = System.nanoTime();
+        try {
+            handleMenuClick(e, menu);
+        } finally {
+            menuClickTime.recordSince(start);
+        }
+    }
+
+    private void handleMenuClick(InventoryClickEvent e, ServerMenuHolder menu) {
+        e.setCancelled(true);
+        if (!(e.getWhoClicked() instanceof Player p)) return;
+        if (e.getRawSlot() != ServerMenuHolder.SLOT_SURVIVAL) return;
+        p.closeInventory();
+        BackendStatus backend = status.get(menu.getServerId(), monotonicMillis());
+        if (backend != null && !backend.online()) {
+            p.sendMessage(Component.text("Сервер сейчас недоступен, попробуйте позже.", NamedTextColor.RED));
+            return;
+        }
+        if (backend != null && backend.isFull()) {
+            p.sendMessage(Component.text("Сервер заполнен, попробуйте позже.", NamedTextColor.RED));
+            return;
         }
+        transfers.enqueue(p, menu.getServerId());
     }
 }
@@ -0,0 +1,201 @@
+package grindzone.lobby;
+
+import grindzone.common.Metrics;
+import net.kyori.adventure.text.Component;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Villager;
+import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.plugin.Plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Меню-житель в world_lobby: отслеживается по UUID, проверка — один поиск сущности.
+ * Ремонт (поиск, удаление лишних, спавн) не больше одного в очереди; чанки грузятся
+ * асинхронно, а пока сущности в них не подгрузились — ремонт откладывается, чтобы не
+ * заспавнить второго жителя. Вся работа с миром идёт в регионе чанка 0,0 (планировщик
+ * регионов: на Paper — основной поток), запросить ремонт можно из любого потока.
+ */
+final class MenuVillagerKeeper {
+
+    static final String WORLD = "world_lobby";
+    static final String MENU_VILLAGER_TAG = "lobby_menu";
+    private static final double SPAWN_X = 1.5;
+    private static final double SPAWN_Y = 7;
+    private static final double SPAWN_Z = 1.5;
+    private static final int RANGE = 2;
+    private static final int PURGE_RANGE = 5;
+    private static final long RETRY_TICKS = 20L;
+    private static final int MAX_RETRIES = 10;
+
+    private final Plugin plugin;
+    private final NamespacedKey menuKey;
+    private final NamespacedKey serverKey;
+    private final Metrics.Histogram repairTime;
+    private volatile UUID villagerId;
+    /** Та же сущность, что villagerId: по ней быстрая проверка идёт в планировщике жителя */
+    private volatile Villager villager;
+    private final AtomicBoolean pending = new AtomicBoolean();
+    /** Запросы очистки, ещё не выполненные ремонтом; ремонт гасит только те, что застал при старте */
+    private final AtomicInteger purgeRequests = new AtomicInteger();
+    private int retries;
+
+    /** serverKey — метка NPC-жителей бэкендов, их очистка не трогает; repairTime — время ремонта в регионе */
+    MenuVillagerKeeper(Plugin plugin, NamespacedKey menuKey, NamespacedKey serverKey, Metrics.Histogram repairTime) {
+        this.plugin = plugin;
+        this.menuKey = menuKey;
+        this.serverKey = serverKey;
+        this.repairTime = repairTime;
+    }
+
+    boolean isMenuVillager(Entity entity) {
+        if (villagerId != null && villagerId.equals(entity.getUniqueId())) return true;
+        return MENU_VILLAGER_TAG.equals(entity.getPersistentDataContainer().get(menuKey, PersistentDataType.STRING));
+    }
+
+    /**
+     * Житель на месте — ничего не делать; иначе запланировать ремонт (если ещё не запланирован).
+     * Если поток не владеет регионом жителя (Folia), проверка уходит в планировщик жителя;
+     * удалённый житель вызывает ремонт через retired-колбэк.
+     */
+    void ensure(long delayTicks) {
+        Villager v = villager;
+        if (v == null || pending.get()) {
+            request(delayTicks, false);
+        } else if (Bukkit.isOwnedByCurrentRegion(v)) {
+            if (!v.isValid()) request(delayTicks, false);
+        } else if (v.getScheduler().run(plugin, task -> {
+            if (!v.isValid()) request(delayTicks, false);
+        }, () -> request(delayTicks, false)) == null) {
+            request(delayTicks, false);
+        }
+    }
+
+    /** Полная очистка: удалить всех лишних жителей в радиусе PURGE_RANGE чанков */
+    void purge() {
+        request(1L, true);
+    }
+
+    private void request(long delayTicks, boolean purge) {
+        if (purge) purgeRequests.incrementAndGet();
+        World w = Bukkit.getWorld(WORLD);
+        if (w == null || !pending.compareAndSet(false, true)) return;
+        Bukkit.getRegionScheduler().runDelayed(plugin, w, 0, 0, task -> repair(w), Math.max(1L, delayTicks));
+    }
+
+    private Villager tracked() {
+        if (villagerId == null) return null;
+        return Bukkit.getEntity(villagerId) instanceof Villager v && v.isValid() ? v : null;
+    }
+
+    private void repair(World w) {
+        int purges = purgeRequests.get();
+        Villager keep = tracked();
+        if (keep != null && purges == 0) {
+            pending.set(false);
+            villager = keep;
+            place(w, keep);
+            finishPurges(0);
+            return;
+        }
+        int range = purges > 0 ? PURGE_RANGE : RANGE;
+        List<CompletableFuture<Chunk>> loads = new ArrayList<>();
+        for (int cx = -range; cx <= range; cx++) {
+            for (int cz = -range; cz <= range; cz++) {
+                loads.add(w.getChunkAtAsync(cx, cz, true));
+            }
+        }
+        CompletableFuture.allOf(loads.toArray(new CompletableFuture[0])).whenComplete((ignored, error) ->
+            Bukkit.getRegionScheduler().execute(plugin, w, 0, 0, () -> {
+                long start = System.nanoTime();
+                afterLoad(w, loads, error, purges);
+                repairTime.recordSince(start);
+            }));
+    }
+
+    /** purges — сколько запросов очистки выполняет этот ремонт (0 — обычная проверка) */
+    private void afterLoad(World w, List<CompletableFuture<Chunk>> loads, Throwable error, int purges) {
+        pending.set(false);
+        if (error != null) {
+            plugin.getLogger().warning("Не удалось загрузить чанки лобби: " + error.getMessage());
+            request(RETRY_TICKS, false);
+            return;
+        }
+        for (CompletableFuture<Chunk> load : loads) {
+            if (load.join().isEntitiesLoaded()) continue;
+            if (retries < MAX_RETRIES) {
+                retries++;
+                request(RETRY_TICKS, false);
+            } else {
+                // Без загруженных сущностей не видно, есть ли житель, — спавн мог бы дать второго
+                retries = 0;
+                plugin.getLogger().warning("Сущности в чанках лобби не загрузились за " + MAX_RETRIES
+                    + " попыток — меню-житель не проверен, повтор при следующем входе игрока.");
+            }
+            return;
+        }
+        retries = 0;
+        Villager keep = tracked();
+        // Только загруженные чанки вокруг спавна, а не весь мир (на Folia мир целиком недоступен)
+        for (CompletableFuture<Chunk> load : loads) {
+            for (Entity entity : load.join().getEntities()) {
+                if (!(entity instanceof Villager v)) continue;
+                if (keep == null && isMenuVillager(v)) {
+                    keep = v;
+                } else if (v != keep && !v.getPersistentDataContainer().has(serverKey)) {
+                    v.remove();
+                }
+            }
+        }
+        if (keep != null) {
+            track(keep);
+            place(w, keep);
+        } else {
+            Villager spawned = w.spawn(location(w), Villager.class, vill -> {
+                vill.setAI(false);
+                vill.setInvulnerable(true);
+                vill.setSilent(true);
+                vill.setPersistent(true);
+                vill.setCustomNameVisible(false);
+                vill.customName(Component.empty());
+                vill.getPersistentDataContainer().set(menuKey, PersistentDataType.STRING, MENU_VILLAGER_TAG);
+            });
+            track(spawned);
+        }
+        finishPurges(purges);
+    }
+
+    /** Погасить выполненные запросы очистки; пришедшие во время ремонта — отдельным ремонтом */
+    private void finishPurges(int purges) {
+        if (purgeRequests.addAndGet(-purges) > 0) request(1L, false);
+    }
+
+    private void track(Villager v) {
+        villagerId = v.getUniqueId();
+        villager = v;
+    }
+
+    private void place(World w, Villager keep) {
+        Location loc = location(w);
+        if (keep.getLocation().distanceSquared(loc) > 0.01) keep.teleportAsync(loc);
+        keep.setCustomNameVisible(false);
+        keep.customName(Component.empty());
+    }
+
+    private static Location location(World w) {
+        Location loc = new Location(w, SPAWN_X, SPAWN_Y, SPAWN_Z);
+        Location spawnPoint = w.getSpawnLocation();
+        loc.setDirection(spawnPoint.toVector().subtract(loc.toVector()));
+        return loc;
+    }
+}
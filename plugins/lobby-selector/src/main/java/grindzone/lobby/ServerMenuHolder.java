@@ -0,0 +1,31 @@
+package grindzone.lobby;
+
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.jetbrains.annotations.NotNull;
+
+/** Меню выбора режима для конкретного бэкенда; клики узнаются по holder, а не по заголовку */
+final class ServerMenuHolder implements InventoryHolder {
+
+    static final int SLOT_SURVIVAL = 4;
+
+    private final String serverId;
+    private Inventory inventory;
+
+    ServerMenuHolder(String serverId) {
+        this.serverId = serverId;
+    }
+
+    String getServerId() {
+        return serverId;
+    }
+
+    void setInventory(Inventory inventory) {
+        this.inventory = inventory;
+    }
+
+    @Override
+    public @NotNull Inventory getInventory() {
+        return inventory;
+    }
+}
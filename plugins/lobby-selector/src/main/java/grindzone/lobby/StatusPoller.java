@@ -0,0 +1,174 @@
+package grindzone.lobby;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Онлайн бэкендов через Server List Ping по адресам из config.yml (те же, что в velocity.toml).
+ * poll() вызывается из асинхронной задачи; меню читает только кэш и никогда не ждёт сеть.
+ * Запись старше ttl-seconds считается неизвестной.
+ */
+final class StatusPoller {
+
+    private static final Pattern PLAYERS = Pattern.compile("\"players\"\\s*:\\s*\\{");
+    private static final Pattern MAX = Pattern.compile("\"max\"\\s*:\\s*(\\d+)");
+    private static final Pattern ONLINE = Pattern.compile("\"online\"\\s*:\\s*(\\d+)");
+    private static final int MAX_RESPONSE = 1 << 20;
+
+    private final Logger logger;
+    private final Map<String, BackendStatus> cache = new ConcurrentHashMap<>();
+    private volatile Map<String, InetSocketAddress> addresses = Map.of();
+    private volatile int timeoutMillis = 1000;
+    private volatile long ttlMillis = 15_000;
+
+    StatusPoller(Logger logger) {
+        this.logger = logger;
+    }
+
+    void configure(ConfigurationSection section) {
+        Map<String, InetSocketAddress> parsed = new LinkedHashMap<>();
+        if (section != null) {
+            timeoutMillis = Math.max(100, section.getInt("timeout-ms", 1000));
+            ttlMillis = Math.max(1, section.getInt("ttl-seconds", 15)) * 1000L;
+            ConfigurationSection servers = section.getConfigurationSection("servers");
+            if (servers != null) {
+                for (String id : servers.getKeys(false)) {
+                    String value = servers.getString(id, "");
+                    int colon = value.lastIndexOf(':');
+                    try {
+                        parsed.put(id, InetSocketAddress.createUnresolved(value.substring(0, colon), Integer.parseInt(value.substring(colon + 1))));
+                    } catch (RuntimeException ex) {
+                        logger.warning("status.servers." + id + ": ожидается host:port, получено '" + value + "'");
+                    }
+                }
+            }
+        }
+        addresses = parsed;
+        cache.keySet().retainAll(parsed.keySet());
+    }
+
+    /** Статус из кэша или null, если сервер не опрашивается или данные устарели */
+    BackendStatus get(String server, long now) {
+        BackendStatus status = cache.get(server);
+        return status != null && now - status.checkedAt() <= ttlMillis ? status : null;
+    }
+
+    /** Опросить все бэкенды; только из асинхронного потока */
+    void poll() {
+        for (Map.Entry<String, InetSocketAddress> entry : addresses.entrySet()) {
+            BackendStatus status;
+            try {
+                status = ping(entry.getValue(), timeoutMillis);
+            } catch (IOException | RuntimeException ex) {
+                status = new BackendStatus(false, 0, 0, System.nanoTime() / 1_000_000L);
+            }
+            cache.put(entry.getKey(), status);
+        }
+    }
+
+    static BackendStatus ping(InetSocketAddress address, int timeoutMillis) throws IOException {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(address.getHostString(), address.getPort()), timeoutMillis);
+            socket.setSoTimeout(timeoutMillis);
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            ByteArrayOutputStream handshake = new ByteArrayOutputStream();
+            DataOutputStream h = new DataOutputStream(handshake);
+            writeVarInt(h, 0x00);
+            writeVarInt(h, -1);
+            byte[] host = address.getHostString().getBytes(StandardCharsets.UTF_8);
+            writeVarInt(h, host.length);
+            h.write(host);
+            h.writeShort(address.getPort());
+            writeVarInt(h, 1);
+            writeVarInt(out, handshake.size());
+            out.write(handshake.toByteArray());
+            out.writeByte(0x01);
+            out.writeByte(0x00);
+            out.flush();
+
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            readVarInt(in);
+            if (readVarInt(in) != 0x00) throw new IOException("неожиданный пакет");
+            int length = readVarInt(in);
+            if (length < 0 || length > MAX_RESPONSE) throw new IOException("некорректная длина ответа");
+            byte[] json = new byte[length];
+            in.readFully(json);
+            return parse(new String(json, StandardCharsets.UTF_8), System.nanoTime() / 1_000_000L);
+        }
+    }
+
+    /** Счётчики из объекта players; поля могут идти в любом порядке, в том числе после sample */
+    static BackendStatus parse(String json, long now) {
+        Matcher players = PLAYERS.matcher(json);
+        if (!players.find()) return new BackendStatus(true, 0, 0, now);
+        String fields = ownFields(json, players.end());
+        Matcher max = MAX.matcher(fields);
+        Matcher online = ONLINE.matcher(fields);
+        return new BackendStatus(true, online.find() ? Integer.parseInt(online.group(1)) : 0,
+            max.find() ? Integer.parseInt(max.group(1)) : 0, now);
+    }
+
+    /**
+     * Поля объекта, начинающегося перед from, без вложенных объектов и массивов (sample с именами
+     * игроков): скобки внутри строк не считаются, разбор заканчивается на закрывающей скобке объекта.
+     */
+    private static String ownFields(String json, int from) {
+        StringBuilder fields = new StringBuilder();
+        int depth = 0;
+        boolean inString = false;
+        for (int i = from; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (inString) {
+                if (depth == 0) fields.append(c);
+                if (c == '\\' && i + 1 < json.length()) {
+                    i++;
+                    if (depth == 0) fields.append(json.charAt(i));
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                if (depth == 0) break;
+                depth--;
+            } else {
+                if (c == '"') inString = true;
+                if (depth == 0) fields.append(c);
+            }
+        }
+        return fields.toString();
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.read();
+            if (b < 0) throw new IOException("соединение закрыто");
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("слишком длинный VarInt");
+    }
+}
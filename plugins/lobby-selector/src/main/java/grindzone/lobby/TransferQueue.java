@@ -0,0 +1,153 @@
+package grindzone.lobby;
+
+import grindzone.common.Metrics;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Переход на бэкенд через канал BungeeCord (Connect; Velocity его поддерживает) с очередью
+ * допуска на каждый сервер: не больше connects-per-second подключений в секунду (token bucket),
+ * остальные ждут и видят позицию в action bar. Выход игрока или выбор другого сервера
+ * снимает его из очереди сразу (O(1)), так что игрок стоит не больше чем в одной очереди
+ * и не больше одного раза. Методы синхронизированы: клики и выходы приходят из регионов
+ * игроков (Folia), tick() — из глобального потока; само подключение уходит в потоке игрока.
+ */
+final class TransferQueue {
+
+    static final String CHANNEL = "BungeeCord";
+
+    private final Plugin plugin;
+    private final Metrics.Counter connects;
+    private final Map<String, Target> targets = new HashMap<>();
+    /** Игрок → сервер, в очередь которого он стоит; всегда совпадает с содержимым очередей */
+    private final Map<UUID, String> queued = new HashMap<>();
+    /** Позиция игрока на момент постановки или последнего показа позиций (раз в секунду) */
+    private final Map<UUID, Integer> positions = new HashMap<>();
+    private double ratePerTick = 0.25;
+    private double burst = 5;
+    private long tick;
+
+    private static final class Target {
+        /** Порядок постановки; удаление из середины — O(1) */
+        final LinkedHashSet<UUID> waiting = new LinkedHashSet<>();
+        double tokens;
+    }
+
+    /** connects — счётчик отправленных игроков в метриках */
+    TransferQueue(Plugin plugin, Metrics.Counter connects) {
+        this.plugin = plugin;
+        this.connects = connects;
+    }
+
+    synchronized void configure(double connectsPerSecond, int burst) {
+        this.ratePerTick = Math.max(0.05, connectsPerSecond) / 20.0;
+        this.burst = Math.max(1, burst);
+    }
+
+    /** Поставить игрока в очередь; при свободном слоте подключение уходит сразу */
+    synchronized void enqueue(Player p, String server) {
+        UUID uuid = p.getUniqueId();
+        if (server.equals(queued.get(uuid))) {
+            showPosition(p, server, positions.getOrDefault(uuid, 0));
+            return;
+        }
+        cancel(uuid);
+        queued.put(uuid, server);
+        Target target = targets.computeIfAbsent(server, s -> {
+            Target t = new Target();
+            t.tokens = burst;
+            return t;
+        });
+        target.waiting.add(uuid);
+        positions.put(uuid, target.waiting.size());
+        admit(server, target);
+        if (queued.containsKey(uuid)) showPosition(p, server, positions.getOrDefault(uuid, 0));
+    }
+
+    synchronized void cancel(UUID uuid) {
+        positions.remove(uuid);
+        String server = queued.remove(uuid);
+        if (server == null) return;
+        Target target = targets.get(server);
+        if (target != null) target.waiting.remove(uuid);
+    }
+
+    /** Сколько игроков стоит в очередях */
+    synchronized int queuedCount() {
+        return queued.size();
+    }
+
+    /** Записей в очередях серверов; всегда равно queuedCount() */
+    synchronized int waitingCount() {
+        int waiting = 0;
+        for (Target target : targets.values()) waiting += target.waiting.size();
+        return waiting;
+    }
+
+    /** Каждый тик: пополнить токены и пропустить, сколько позволяет лимит; раз в секунду — позиции */
+    synchronized void tick() {
+        tick++;
+        boolean feedback = tick % 20 == 0;
+        for (Iterator<Map.Entry<String, Target>> it = targets.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Target> entry = it.next();
+            Target target = entry.getValue();
+            target.tokens = Math.min(burst, target.tokens + ratePerTick);
+            admit(entry.getKey(), target);
+            if (target.waiting.isEmpty()) {
+                if (target.tokens >= burst) it.remove();
+                continue;
+            }
+            if (feedback) {
+                int position = 0;
+                for (UUID uuid : target.waiting) {
+                    positions.put(uuid, ++position);
+                    Player p = Bukkit.getPlayer(uuid);
+                    if (p != null) showPosition(p, entry.getKey(), position);
+                }
+            }
+        }
+    }
+
+    private void admit(String server, Target target) {
+        for (Iterator<UUID> it = target.waiting.iterator(); target.tokens >= 1 && it.hasNext(); ) {
+            UUID uuid = it.next();
+            it.remove();
+            queued.remove(uuid);
+            positions.remove(uuid);
+            Player p = Bukkit.getPlayer(uuid);
+            if (p == null) continue;
+            target.tokens -= 1;
+            p.getScheduler().run(plugin, task -> connect(p, server), null);
+        }
+    }
+
+    private void connect(Player p, String server) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF("Connect");
+            out.writeUTF(server);
+        } catch (IOException ignored) {
+            return;
+        }
+        p.sendActionBar(Component.text("Подключение к " + server + "...", NamedTextColor.GREEN));
+        p.sendPluginMessage(plugin, CHANNEL, bytes.toByteArray());
+        connects.increment();
+    }
+
+    private static void showPosition(Player p, String server, int position) {
+        if (position <= 0) return;
+        p.sendActionBar(Component.text("Очередь на " + server + ": позиция " + position, NamedTextColor.YELLOW));
+    }
+}
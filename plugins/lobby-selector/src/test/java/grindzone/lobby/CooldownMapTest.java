@@ -0,0 +1,124 @@
+package grindzone.lobby;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CooldownMapTest {
+
+    private static final long TICK = 50;
+
+    @Test
+    void acquireBlocksUntilCooldownEnds() {
+        CooldownMap map = new CooldownMap(TICK);
+        UUID a = UUID.randomUUID();
+
+        assertTrue(map.tryAcquire(a, 1_000, 500));
+        assertFalse(map.tryAcquire(a, 1_499, 500));
+        assertEquals(1, map.size());
+        assertTrue(map.tryAcquire(a, 1_500, 500));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void reacquireAfterExpiry() {
+        CooldownMap map = new CooldownMap(TICK);
+        UUID a = UUID.randomUUID();
+        map.expire(0);
+
+        assertTrue(map.tryAcquire(a, 0, 1_000));
+        map.expire(900);
+        assertEquals(1, map.size());
+        map.expire(1_000 + TICK);
+        assertEquals(0, map.size());
+
+        assertTrue(map.tryAcquire(a, 1_100, 1_000));
+        assertFalse(map.tryAcquire(a, 1_200, 1_000));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void staleWheelEntryDoesNotExpireReacquiredKey() {
+        CooldownMap map = new CooldownMap(TICK);
+        UUID a = UUID.randomUUID();
+        map.expire(0);
+
+        assertTrue(map.tryAcquire(a, 0, 1_000));
+        map.remove(a);
+        assertEquals(0, map.size());
+        assertTrue(map.tryAcquire(a, 400, 1_000));
+
+        // Ячейка прежнего окончания (1000 мс) наступила, новый кулдаун — до 1400 мс
+        map.expire(1_000 + TICK);
+        assertEquals(1, map.size());
+        assertFalse(map.tryAcquire(a, 1_100, 1_000));
+
+        map.expire(1_400 + TICK);
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void resizeWithDeletesAcrossWrapAround() {
+        CooldownMap map = new CooldownMap(TICK);
+        // Ключи с «домом» в конце таблицы: цепочки переходят через конец массива к началу
+        // и при 64, и при 128 ячейках (рост — после 48 записей)
+        List<UUID> keys = keysHomedNearEnd(100, 120, 127);
+        List<UUID> live = new ArrayList<>();
+        List<UUID> removed = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            UUID key = keys.get(i);
+            assertTrue(map.tryAcquire(key, 0, 60_000));
+            live.add(key);
+            if (i % 3 == 2) {
+                UUID victim = live.remove(live.size() / 2);
+                map.remove(victim);
+                removed.add(victim);
+            }
+        }
+        assertEquals(live.size(), map.size());
+
+        for (UUID key : live) assertFalse(map.tryAcquire(key, 1, 60_000), "запись потеряна");
+        for (UUID key : removed) assertTrue(map.tryAcquire(key, 1, 60_000), "удалённая запись осталась");
+        assertEquals(keys.size(), map.size());
+    }
+
+    @Test
+    void expireGapLongerThanWheel() {
+        CooldownMap map = new CooldownMap(TICK);
+        UUID shortCooldown = UUID.randomUUID();
+        UUID longCooldown = UUID.randomUUID();
+        map.expire(0);
+        long wheelSpan = CooldownMap.WHEEL_SLOTS * TICK;
+
+        assertTrue(map.tryAcquire(shortCooldown, 0, 500));
+        assertTrue(map.tryAcquire(longCooldown, 0, 3 * wheelSpan));
+
+        // Пропуск больше оборота колеса: все ячейки обходятся один раз
+        map.expire(wheelSpan + wheelSpan / 2);
+        assertEquals(1, map.size());
+        assertFalse(map.tryAcquire(longCooldown, wheelSpan + wheelSpan / 2, 3 * wheelSpan));
+        assertTrue(map.tryAcquire(shortCooldown, wheelSpan + wheelSpan / 2, 500));
+
+        map.expire(3 * wheelSpan + TICK);
+        assertEquals(0, map.size());
+    }
+
+    /** count ключей, чей хэш в таблице на 128 ячеек попадает в [from, to] */
+    private static List<UUID> keysHomedNearEnd(int count, int from, int to) {
+        Random random = new Random(42);
+        List<UUID> keys = new ArrayList<>();
+        while (keys.size() < count) {
+            UUID key = new UUID(random.nextLong(), random.nextLong());
+            int home = CooldownMap.hash(key.getMostSignificantBits(), key.getLeastSignificantBits()) & 127;
+            if (home >= from && home <= to) keys.add(key);
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,119 @@
+package grindzone.lobby;
+
+import grindzone.common.LoadReport;
+import org.bukkit.Location;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.entity.Villager;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.event.player.PlayerInteractEntityEvent;
+import org.bukkit.event.player.PlayerPortalEvent;
+import org.bukkit.event.player.PlayerTeleportEvent.TeleportCause;
+import org.bukkit.persistence.PersistentDataType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.ServerMock;
+import org.mockbukkit.mockbukkit.entity.PlayerMock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Наплыв 300 игроков в world_lobby: по 10 входов за тик, каждый сразу проходит через портал
+ * и выбирает сервер у NPC-жителя; последние QUITTERS выходят, не дождавшись очереди.
+ * У спавна заранее стоят лишние жители. Инварианты: ровно один меню-житель, NPC бэкенда
+ * на месте, на бэкенд ушли только оставшиеся игроки, после выхода всех пусты очереди
+ * и кулдауны порталов.
+ */
+class LobbyLoadSimulationTest {
+
+    private static final int PLAYERS = 300;
+    private static final int JOINS_PER_TICK = 10;
+    private static final int QUITTERS = 50;
+    // Бэкенд без адреса в status.servers: статус не опрашивается, вход всегда открыт
+    private static final String SERVER = "sandbox17";
+
+    private ServerMock server;
+    private World world;
+    private LobbySelectorPlugin plugin;
+
+    @BeforeEach
+    void setUp() {
+        server = MockBukkit.mock();
+        world = server.addSimpleWorld(MenuVillagerKeeper.WORLD);
+        plugin = MockBukkit.load(LobbySelectorPlugin.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    @Test
+    void joinStorm() throws Exception {
+        LoadReport report = new LoadReport("lobby-join-storm");
+        NamespacedKey serverKey = new NamespacedKey(plugin, "server");
+        NamespacedKey menuKey = new NamespacedKey(plugin, "menu_villager");
+        for (int i = 0; i < 3; i++) {
+            world.spawn(new Location(world, 1.5 + i, 7, 2.5), Villager.class, v -> { });
+        }
+        Villager npc = world.spawn(new Location(world, 6.5, 7, 6.5), Villager.class,
+            v -> v.getPersistentDataContainer().set(serverKey, PersistentDataType.STRING, SERVER));
+
+        List<PlayerMock> players = new ArrayList<>();
+        Location portal = new Location(world, 0.5, 7, 10.5);
+        while (players.size() < PLAYERS) {
+            report.tick(() -> {
+                for (int i = 0; i < JOINS_PER_TICK; i++) {
+                    PlayerMock p = server.addPlayer("lobby" + players.size());
+                    players.add(p);
+                    server.getPluginManager().callEvent(new PlayerPortalEvent(p, portal, portal.clone().add(0, 0, 1), TeleportCause.NETHER_PORTAL));
+                    server.getPluginManager().callEvent(new PlayerInteractEntityEvent(p, npc));
+                    p.simulateInventoryClick(p.getOpenInventory(), ClickType.LEFT, ServerMenuHolder.SLOT_SURVIVAL);
+                    if (players.size() > PLAYERS - QUITTERS) p.disconnect();
+                }
+                server.getScheduler().performOneTick();
+            });
+        }
+        // Очередь: connects-per-second из config.yml, с запасом на догрузку чанков жителя
+        int drainTicks = (int) Math.ceil(PLAYERS / plugin.getConfig().getDouble("transfer.connects-per-second", 5) * 20) + 200;
+        for (int t = 0; t < drainTicks; t++) {
+            report.tick(server.getScheduler()::performOneTick);
+        }
+
+        int menuVillagers = 0;
+        int villagers = 0;
+        for (Villager v : world.getEntitiesByClass(Villager.class)) {
+            if (v.isDead()) continue;
+            villagers++;
+            if (MenuVillagerKeeper.MENU_VILLAGER_TAG.equals(v.getPersistentDataContainer().get(menuKey, PersistentDataType.STRING))) menuVillagers++;
+        }
+        long transfers = plugin.getMetrics().counter("transfers", "").get();
+        report.put("players", PLAYERS);
+        report.put("villagers", villagers);
+        report.put("transfers", transfers);
+        report.put("menu_clicks", plugin.getMetrics().histogram("menu_click", "").count());
+        report.put("portal_events", plugin.getMetrics().histogram("portal", "").count());
+        report.put("villager_repairs", plugin.getMetrics().histogram("villager_repair", "").count());
+        report.check("exactly_one_menu_villager", menuVillagers == 1);
+        report.check("server_npc_kept", !npc.isDead());
+        report.check("duplicates_removed", villagers == 2);
+        report.check("transfers_only_for_online", transfers == PLAYERS - QUITTERS);
+
+        for (PlayerMock p : players) {
+            if (p.isOnline()) p.disconnect();
+        }
+        for (int t = 0; t < 40; t++) {
+            report.tick(server.getScheduler()::performOneTick);
+        }
+        report.check("no_cooldowns_after_quit", plugin.getPortalCooldowns().size() == 0);
+        report.check("no_queue_after_quit", plugin.getTransfers().queuedCount() == 0 && plugin.getTransfers().waitingCount() == 0);
+
+        report.write();
+        assertTrue(report.passed(), report.failures());
+    }
+}
@@ -0,0 +1,164 @@
+package grindzone.lobby;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatusPollerTest {
+
+    @Test
+    void pingSpeaksVarIntFramedStatusProtocol() throws IOException {
+        // Ответ длиннее 127 байт: длина пакета и длина строки — двухбайтовые VarInt
+        String json = "{\"version\":{\"name\":\"Paper 1.21.10\",\"protocol\":773},"
+            + "\"description\":{\"text\":\"" + "x".repeat(300) + "\"},"
+            + "\"players\":{\"max\":100,\"online\":7}}";
+        AtomicReference<String> request = new AtomicReference<>();
+        try (ServerSocket server = backend(json, request)) {
+            int port = server.getLocalPort();
+            BackendStatus status = StatusPoller.ping(InetSocketAddress.createUnresolved("127.0.0.1", port), 1000);
+
+            assertEquals("handshake 0 -1 127.0.0.1 " + port + " 1; status 0", request.get());
+            assertTrue(status.online());
+            assertEquals(7, status.players());
+            assertEquals(100, status.maxPlayers());
+        }
+    }
+
+    @Test
+    void countsAfterSampleArePicked() {
+        String json = "{\"description\":\"online: 999\",\"players\":{\"sample\":["
+            + "{\"name\":\"a}b{\",\"id\":\"00000000-0000-0000-0000-000000000001\"},"
+            + "{\"name\":\"online\",\"id\":\"00000000-0000-0000-0000-000000000002\"}],"
+            + "\"max\":50,\"online\":2},\"version\":{\"name\":\"Paper\",\"protocol\":773}}";
+
+        BackendStatus status = StatusPoller.parse(json, 0);
+
+        assertTrue(status.online());
+        assertEquals(2, status.players());
+        assertEquals(50, status.maxPlayers());
+    }
+
+    @Test
+    void unreachableBackendIsCachedAsOffline() throws IOException {
+        int closedPort;
+        try (ServerSocket unused = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            closedPort = unused.getLocalPort();
+        }
+        YamlConfiguration config = new YamlConfiguration();
+        config.set("timeout-ms", 500);
+        config.set("servers.survival", "127.0.0.1:" + closedPort);
+        StatusPoller poller = new StatusPoller(Logger.getLogger("StatusPollerTest"));
+        poller.configure(config);
+
+        poller.poll();
+
+        BackendStatus status = poller.get("survival", System.nanoTime() / 1_000_000L);
+        assertNotNull(status);
+        assertFalse(status.online());
+    }
+
+    @Test
+    void backendClosingBeforeResponseIsCachedAsOffline() throws IOException {
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            Thread thread = new Thread(() -> {
+                try (Socket client = server.accept()) {
+                    client.getInputStream().read();
+                } catch (IOException ignored) {
+                    // клиент уже отключился
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+            YamlConfiguration config = new YamlConfiguration();
+            config.set("timeout-ms", 500);
+            config.set("servers.lobby", "127.0.0.1:" + server.getLocalPort());
+            StatusPoller poller = new StatusPoller(Logger.getLogger("StatusPollerTest"));
+            poller.configure(config);
+
+            poller.poll();
+
+            BackendStatus status = poller.get("lobby", System.nanoTime() / 1_000_000L);
+            assertNotNull(status);
+            assertFalse(status.online());
+        }
+    }
+
+    /** Бэкенд на одно подключение: записывает рукопожатие и запрос статуса, отвечает json */
+    private static ServerSocket backend(String json, AtomicReference<String> request) throws IOException {
+        ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        Thread thread = new Thread(() -> {
+            try (Socket client = server.accept()) {
+                DataInputStream in = new DataInputStream(client.getInputStream());
+                DataInputStream handshake = new DataInputStream(new ByteArrayInputStream(readPacket(in)));
+                int id = readVarInt(handshake);
+                int protocol = readVarInt(handshake);
+                byte[] host = new byte[readVarInt(handshake)];
+                handshake.readFully(host);
+                int port = handshake.readUnsignedShort();
+                int next = readVarInt(handshake);
+                DataInputStream status = new DataInputStream(new ByteArrayInputStream(readPacket(in)));
+                request.set("handshake " + id + " " + protocol + " " + new String(host, StandardCharsets.UTF_8)
+                    + " " + port + " " + next + "; status " + readVarInt(status));
+
+                byte[] text = json.getBytes(StandardCharsets.UTF_8);
+                ByteArrayOutputStream packet = new ByteArrayOutputStream();
+                DataOutputStream p = new DataOutputStream(packet);
+                writeVarInt(p, 0x00);
+                writeVarInt(p, text.length);
+                p.write(text);
+                DataOutputStream out = new DataOutputStream(client.getOutputStream());
+                writeVarInt(out, packet.size());
+                out.write(packet.toByteArray());
+                out.flush();
+            } catch (IOException ignored) {
+                // тест увидит отсутствие ответа
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return server;
+    }
+
+    private static byte[] readPacket(DataInputStream in) throws IOException {
+        byte[] packet = new byte[readVarInt(in)];
+        in.readFully(packet);
+        return packet;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.read();
+            if (b < 0) throw new IOException("соединение закрыто");
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("слишком длинный VarInt");
+    }
+}